@@ -4,8 +4,11 @@ import com.cl.common.enums.CacheEnum;
 import com.cl.common.utils.CacheUtils;
 import com.cl.common.utils.HttpUtils;
 import com.cl.common.utils.RedisUtils;
+import com.cl.common.utils.cache.CacheSpec;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 
 /**
  * @author: CarterCL
@@ -28,6 +31,35 @@ public class Demo {
         System.out.println(CacheUtils.get(CacheEnum.COMMON_CACHE, "key"));
     }
 
+    /**
+     * 对比String key与long key缓存每次get的内存分配
+     */
+    private static void longKeyCacheDemo() {
+        int count = 1_000_000;
+        CacheUtils.register("longKeyDemo", CacheSpec.builder().longKey(true).maximumSize(count).duration(Duration.ofMinutes(10)).build());
+        for (long i = 0; i < count; i++) {
+            CacheUtils.put("longKeyDemo", i, "value");
+            CacheUtils.put(CacheEnum.COMMON_CACHE, String.valueOf(i % 10000), "value");
+        }
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int round = 0; round < 3; round++) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (long i = 0; i < count; i++) {
+                CacheUtils.get("longKeyDemo", i);
+            }
+            long longKeyBytes = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+            before = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (long i = 0; i < count; i++) {
+                CacheUtils.get(CacheEnum.COMMON_CACHE, String.valueOf(i % 10000));
+            }
+            long stringKeyBytes = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+            System.out.printf("round %d: long key %.2f bytes/get, String key %.2f bytes/get%n",
+                    round, (double) longKeyBytes / count, (double) stringKeyBytes / count);
+        }
+        CacheUtils.unregister("longKeyDemo");
+    }
+
     private static void redisUtilsDemo() {
         RedisUtils.init("127.0.0.1", 6379, 0, "password");
         RedisUtils.set("key", "value");
@@ -1,12 +1,13 @@
 package com.cl.common.enums;
 
+import com.cl.common.utils.cache.CacheSpec;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.time.Duration;
 
 /**
- * 缓存枚举
+ * 缓存枚举，运行时新增的缓存通过CacheUtils.register注册
  *
  * @author: CarterCL
  * @date: 2022/1/1 14:33
@@ -19,12 +20,19 @@ public enum CacheEnum {
     /**
      * 通用缓存
      */
-    COMMON_CACHE("common", false, null, 10000),
+    COMMON_CACHE("common", CacheSpec.builder()
+            .maximumSize(10000)
+            .recordStats(true)
+            .build()),
 
     /**
      * 验证码缓存
      */
-    VERIFY_CODE_CACHE("verifyCode", false, Duration.ofMinutes(3), 50000);
+    VERIFY_CODE_CACHE("verifyCode", CacheSpec.builder()
+            .duration(Duration.ofMinutes(3))
+            .maximumSize(50000)
+            .recordStats(true)
+            .build());
 
     /**
      * 缓存名
@@ -32,35 +40,40 @@ public enum CacheEnum {
     private final String cacheName;
 
     /**
-     * 缓存时间是否根据访问刷新
+     * 缓存配置
      */
-    private final boolean isAfterAccess;
+    private final CacheSpec spec;
 
     /**
-     * TTL
+     * 缓存时间是否根据访问刷新
+     *
+     * @return 根据访问刷新true
+     * @deprecated 使用{@link #getSpec()}
      */
-    private final Duration duration;
+    @Deprecated
+    public boolean isAfterAccess() {
+        return spec.isAfterAccess();
+    }
 
     /**
-     * 最大缓存个数
+     * TTL
+     *
+     * @return TTL，为null时不过期
+     * @deprecated 使用{@link #getSpec()}
      */
-    private final long maximumSize;
+    @Deprecated
+    public Duration getDuration() {
+        return spec.getDuration();
+    }
 
     /**
-     * 转换为CaffeineSpec配置
+     * 最大缓存个数
      *
-     * @return 配置字符串
+     * @return 最大缓存个数
+     * @deprecated 使用{@link #getSpec()}
      */
-    public String toCaffeineSpec() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("maximumSize=").append(maximumSize);
-        if (duration != null) {
-            if (isAfterAccess) {
-                builder.append(",expireAfterAccess=").append(duration.toSeconds()).append("s");
-            } else {
-                builder.append(",expireAfterWrite=").append(duration.toSeconds()).append("s");
-            }
-        }
-        return builder.toString();
+    @Deprecated
+    public long getMaximumSize() {
+        return spec.getMaximumSize();
     }
 }
@@ -0,0 +1,32 @@
+package com.cl.common.enums;
+
+/**
+ * 缓存值存储方式枚举
+ *
+ * @author: CarterCL
+ * @date: 2022/1/9 15:10
+ * @version: V1.0
+ */
+public enum CacheStoreModeEnum {
+
+    /**
+     * 直接存储对象引用
+     */
+    OBJECT,
+
+    /**
+     * 序列化为byte[]存储，减少对象头及引用开销，值需实现Serializable
+     */
+    SERIALIZED,
+
+    /**
+     * 序列化为byte[]，超过阈值时压缩后存储
+     */
+    COMPRESSED,
+
+    /**
+     * 序列化(超过阈值时压缩)后存储在按大小分级复用的堆外内存块中，减少GC压力；
+     * 需配置maximumWeight，堆外内存上限为maximumWeight的1.25倍，超出时存储在堆内
+     */
+    OFF_HEAP
+}
@@ -1,15 +1,77 @@
 package com.cl.common.utils;
 
 import com.cl.common.enums.CacheEnum;
+import com.cl.common.enums.CacheStoreModeEnum;
+import com.cl.common.utils.cache.BloomFilter;
+import com.cl.common.utils.cache.CacheExpiry;
+import com.cl.common.utils.cache.CacheSnapshot;
+import com.cl.common.utils.cache.CacheSpec;
+import com.cl.common.utils.cache.CacheStatsBean;
+import com.cl.common.utils.cache.CacheStatsCounter;
+import com.cl.common.utils.cache.CacheStatsSnapshot;
+import com.cl.common.utils.cache.CacheValueCodec;
+import com.cl.common.utils.cache.CacheWeighers;
+import com.cl.common.utils.cache.LongKeyCache;
+import com.cl.common.utils.cache.OffHeapArena;
+import com.cl.common.utils.metrics.LatencyHistogram;
+import com.cl.common.utils.redis.RedisAsync;
+import com.cl.common.utils.redis.RedisCodecs;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 /**
  * 本地缓存工具类
+ * <p>
+ * 缓存通过CacheEnum声明，或在运行时通过{@link #register(String, CacheSpec)}注册，按缓存名访问
+ * <p>
+ * 声明为Redis二级缓存的缓存，读取顺序为 本地缓存 -> Redis -> 自定义方法，
+ * 写入/删除会同步更新Redis并广播失效消息，其他节点收到后删除本地缓存
+ * <p>
+ * 配置了refreshAfterWrite的缓存，到期后的首次读取返回旧值，同时在线程池中通过{@link #setLoader}设置的加载方法异步刷新
+ * <p>
+ * 同步读取方法在调用线程执行加载方法；配置了asyncLoad的缓存使用AsyncLoadingCache，getAsync不占用线程等待加载
+ * <p>
+ * 存储方式非OBJECT的缓存，本地缓存中保存编码后的byte[]/ByteBuffer，读取时解码为新对象
+ * <p>
+ * 过期基于Caffeine的时间轮实现，除缓存配置的默认TTL外，可通过{@link #put(String, String, Object, Duration)}为单个key指定TTL
+ * <p>
+ * 开启快照的缓存在{@link #enableSnapshot(Path, Duration)}后定时持久化到本地文件，重启后按剩余TTL恢复
+ * <p>
+ * 声明为longKey的缓存使用LongKeyCache存储，通过long key重载方法访问，读取不装箱、不分配对象
  *
  * @author: CarterCL
  * @date: 2022/1/1 14:40
@@ -17,15 +79,255 @@ import java.util.function.Function;
  */
 public final class CacheUtils {
 
-    private static final Map<CacheEnum, Cache<String, Object>> CACHE_MAP = new ConcurrentHashMap<>(CacheEnum.values().length * 2);
+    private static final Logger LOGGER = Logger.getLogger(CacheUtils.class.getName());
+
+    /**
+     * 统计信息JMX ObjectName前缀
+     */
+    private static final String STATS_OBJECT_NAME_PREFIX = "com.cl.common:type=CacheStats,name=";
+
+    /**
+     * 失效广播频道
+     */
+    private static final String INVALIDATE_CHANNEL = "cache:invalidate";
+
+    /**
+     * 失效消息分隔符，消息格式: 节点ID \n 缓存名 \n key...
+     */
+    private static final String MESSAGE_SEPARATOR = "\n";
+
+    /**
+     * 当前节点ID，用于忽略自身发出的失效消息
+     */
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    /**
+     * 剩余TTL超过该天数时视为不过期
+     */
+    private static final long SNAPSHOT_NEVER_EXPIRE_DAYS = 365L * 100;
+
+    /**
+     * 单飞租约key后缀
+     */
+    private static final String LEASE_SUFFIX = ":loading";
+
+    /**
+     * 等待其他节点加载时轮询Redis的间隔(毫秒)
+     */
+    private static final long LEASE_POLL_MILLIS = 50L;
+
+    /**
+     * 仅释放自己持有的租约，避免租约过期后误删其他节点的租约
+     */
+    private static final String RELEASE_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    /**
+     * 租约值替换为空值标记，保留剩余过期时间
+     */
+    private static final String MARK_NULL_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then local ttl = redis.call('pttl', KEYS[1]) " +
+            "if ttl > 0 then redis.call('set', KEYS[1], ARGV[2], 'PX', ttl) return 1 end end return 0";
+
+    /**
+     * 加载结果为空时的租约值
+     */
+    private static final String NULL_LEASE_VALUE = "null";
+
+    /**
+     * 缓存名 -> 缓存
+     */
+    private static final Map<String, LocalCache> CACHE_MAP = new ConcurrentHashMap<>(CacheEnum.values().length * 2);
+
+    /**
+     * 缓存名 -> long类型key的缓存
+     */
+    private static final Map<String, LongKeyCache> LONG_KEY_CACHE_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 异步加载/刷新线程池，默认为专用的守护线程池，不占用ForkJoinPool.commonPool()
+     */
+    private static volatile Executor executor = newLoaderExecutor();
+
+    /**
+     * 是否已订阅失效广播
+     */
+    private static boolean isSubscribed = false;
+
+    /**
+     * 统计信息日志输出线程
+     */
+    private static ScheduledExecutorService statsReporter;
+
+    /**
+     * 快照目录，为null时未开启快照
+     */
+    private static volatile Path snapshotDirectory;
+
+    /**
+     * 快照定时写入线程
+     */
+    private static ScheduledExecutorService snapshotWriter;
+
+    private static Thread snapshotShutdownHook;
 
     static {
         // 初始化
         for (CacheEnum cacheEnum : CacheEnum.values()) {
-            CACHE_MAP.put(cacheEnum, Caffeine.from(cacheEnum.toCaffeineSpec()).build());
+            register(cacheEnum.getCacheName(), cacheEnum.getSpec());
+        }
+    }
+
+    //region 注册
+
+    /**
+     * 注册缓存
+     *
+     * @param cacheName 缓存名
+     * @param spec      缓存配置
+     */
+    public static void register(String cacheName, CacheSpec spec) {
+        if (spec.isLongKey()) {
+            registerLongKeyCache(cacheName, spec);
+            return;
+        }
+        if (LONG_KEY_CACHE_MAP.containsKey(cacheName)) {
+            throw new IllegalArgumentException("Cache [" + cacheName + "] is already registered");
+        }
+        LocalCache localCache = new LocalCache(cacheName, spec);
+        if (CACHE_MAP.putIfAbsent(cacheName, localCache) != null) {
+            throw new IllegalArgumentException("Cache [" + cacheName + "] is already registered");
+        }
+        if (spec.isRecordStats()) {
+            registerStatsMBean(cacheName);
+        }
+        if (spec.isRedisBacked()) {
+            subscribeInvalidate();
+        }
+        if (spec.isSnapshot() && snapshotDirectory != null) {
+            loadSnapshot(localCache, snapshotDirectory);
+        }
+    }
+
+    /**
+     * 注销运行时注册的缓存并清空其内容，同时移除其加载方法、布隆过滤器、进行中的加载与刷新及快照文件，
+     * 之后以相同名称注册时不会沿用；CacheEnum声明的缓存不可注销
+     *
+     * @param cacheName 缓存名
+     */
+    public static void unregister(String cacheName) {
+        for (CacheEnum cacheEnum : CacheEnum.values()) {
+            if (cacheEnum.getCacheName().equals(cacheName)) {
+                throw new IllegalArgumentException("Cache [" + cacheName + "] is declared by CacheEnum");
+            }
+        }
+        LongKeyCache longKeyCache = LONG_KEY_CACHE_MAP.remove(cacheName);
+        if (longKeyCache != null) {
+            longKeyCache.clear();
+            return;
+        }
+        LocalCache localCache = CACHE_MAP.remove(cacheName);
+        if (localCache == null) {
+            return;
+        }
+        localCache.loader = null;
+        localCache.bloomFilter = null;
+        localCache.bloomFilterKey = null;
+        localCache.loading.clear();
+        for (CompletableFuture<Object> refresh : localCache.cache.policy().refreshes().values()) {
+            refresh.cancel(false);
+        }
+        localCache.cache.invalidateAll();
+        if (localCache.spec.isRecordStats()) {
+            unregisterStatsMBean(cacheName);
+        }
+        if (localCache.spec.isSnapshot()) {
+            deleteSnapshot(localCache);
+        }
+    }
+
+    /**
+     * 是否已注册
+     *
+     * @param cacheName 缓存名
+     * @return 已注册true
+     */
+    public static boolean isRegistered(String cacheName) {
+        return CACHE_MAP.containsKey(cacheName) || LONG_KEY_CACHE_MAP.containsKey(cacheName);
+    }
+
+    /**
+     * 运行时调整最大缓存个数(按权重淘汰的缓存为最大权重)
+     *
+     * @param cacheEnum 缓存类型
+     * @param maximum   最大值
+     */
+    public static void setMaximum(CacheEnum cacheEnum, long maximum) {
+        setMaximum(cacheEnum.getCacheName(), maximum);
+    }
+
+    /**
+     * 运行时调整最大缓存个数(按权重淘汰的缓存为最大权重)，调小后超出部分立即淘汰
+     *
+     * @param cacheName 缓存名
+     * @param maximum   最大值
+     */
+    public static void setMaximum(String cacheName, long maximum) {
+        Policy.Eviction<String, Object> eviction = getLocalCache(cacheName).cache.policy().eviction()
+                .orElseThrow(() -> new IllegalStateException("Cache [" + cacheName + "] is not size bounded"));
+        eviction.setMaximum(maximum);
+    }
+
+    /**
+     * 获取当前最大缓存个数(按权重淘汰的缓存为最大权重)
+     *
+     * @param cacheName 缓存名
+     * @return 最大值
+     */
+    public static long getMaximum(String cacheName) {
+        return getLocalCache(cacheName).cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * 运行时调整TTL
+     *
+     * @param cacheEnum 缓存类型
+     * @param duration  TTL
+     */
+    public static void setDuration(CacheEnum cacheEnum, Duration duration) {
+        setDuration(cacheEnum.getCacheName(), duration);
+    }
+
+    /**
+     * 运行时调整默认TTL，对之后的写入生效(缓存时间根据访问刷新的缓存，之后的访问同样生效)；Redis二级缓存之后写入Redis时使用新的TTL
+     *
+     * @param cacheName 缓存名
+     * @param duration  TTL，为null时不过期
+     */
+    public static void setDuration(String cacheName, Duration duration) {
+        LongKeyCache longKeyCache = LONG_KEY_CACHE_MAP.get(cacheName);
+        if (longKeyCache != null) {
+            longKeyCache.setDuration(duration);
+            return;
+        }
+        getLocalCache(cacheName).expiry.setDuration(duration);
+    }
+
+    private static void registerLongKeyCache(String cacheName, CacheSpec spec) {
+        if (spec.isRedisBacked() || spec.getRefreshAfterWrite() != null || spec.isRecordStats() || spec.getMaximumWeight() > 0
+                || spec.getStoreMode() != CacheStoreModeEnum.OBJECT || spec.isSnapshot()) {
+            throw new IllegalArgumentException("Long key cache [" + cacheName + "] only supports maximumSize, duration and afterAccess");
+        }
+        if (CACHE_MAP.containsKey(cacheName)
+                || LONG_KEY_CACHE_MAP.putIfAbsent(cacheName, new LongKeyCache(spec.getMaximumSize(), spec.getDuration(), spec.isAfterAccess())) != null) {
+            throw new IllegalArgumentException("Cache [" + cacheName + "] is already registered");
         }
     }
 
+    //endregion
+
+    //region 读写
+
     /**
      * 获取值
      *
@@ -34,7 +336,32 @@ public final class CacheUtils {
      * @return value
      */
     public static Object get(CacheEnum cacheEnum, String key) {
-        return CACHE_MAP.get(cacheEnum).getIfPresent(key);
+        return get(cacheEnum.getCacheName(), key);
+    }
+
+    /**
+     * 获取值
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @return value
+     */
+    public static Object get(String cacheName, String key) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (!localCache.spec.isRedisBacked()) {
+            while (true) {
+                Object value = localCache.cache.getIfPresent(key);
+                Object decoded = decode(localCache, value);
+                // 堆外块读取期间被淘汰或覆盖时重新读取
+                if (decoded != null || value == null) {
+                    return decoded;
+                }
+            }
+        }
+        if (isAbsent(localCache, key)) {
+            return null;
+        }
+        return getOrLoad(localCache, key, k -> RedisUtils.get(toRedisKey(localCache, k)));
     }
 
     /**
@@ -46,7 +373,161 @@ public final class CacheUtils {
      * @return value
      */
     public static Object getAndSet(CacheEnum cacheEnum, String key, Function<String, Object> valueFunction) {
-        return CACHE_MAP.get(cacheEnum).get(key, valueFunction);
+        return getAndSet(cacheEnum.getCacheName(), key, valueFunction);
+    }
+
+    /**
+     * 获取值，若获取不到，则执行自定义方法设置值
+     *
+     * @param cacheName     缓存名
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value
+     */
+    public static Object getAndSet(String cacheName, String key, Function<String, Object> valueFunction) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (isAbsent(localCache, key)) {
+            return null;
+        }
+        return getOrLoad(localCache, key, k -> load(localCache, k, valueFunction));
+    }
+
+    /**
+     * 异步获取值，若获取不到，则在线程池中执行{@link #setLoader}设置的加载方法
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     * @return value future，获取不到时结果为null
+     */
+    public static CompletableFuture<Object> getAsync(CacheEnum cacheEnum, String key) {
+        return getAsync(cacheEnum.getCacheName(), key);
+    }
+
+    /**
+     * 异步获取值，若获取不到，则在线程池中执行{@link #setLoader}设置的加载方法
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @return value future，获取不到时结果为null
+     */
+    public static CompletableFuture<Object> getAsync(String cacheName, String key) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (isAbsent(localCache, key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (localCache.asyncCache == null) {
+            return CompletableFuture.supplyAsync(() -> getOrLoad(localCache, key, k -> load(localCache, k, localCache.loader)), executor);
+        }
+        return decode(localCache, localCache.asyncCache.get(key));
+    }
+
+    /**
+     * 异步获取值，若获取不到，则在线程池中执行自定义方法设置值
+     *
+     * @param cacheEnum     缓存类型
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value future
+     */
+    public static CompletableFuture<Object> getAsync(CacheEnum cacheEnum, String key, Function<String, Object> valueFunction) {
+        return getAsync(cacheEnum.getCacheName(), key, valueFunction);
+    }
+
+    /**
+     * 异步获取值，若获取不到，则在线程池中执行自定义方法设置值
+     *
+     * @param cacheName     缓存名
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value future
+     */
+    public static CompletableFuture<Object> getAsync(String cacheName, String key, Function<String, Object> valueFunction) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (isAbsent(localCache, key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (localCache.asyncCache == null) {
+            return CompletableFuture.supplyAsync(() -> getOrLoad(localCache, key, k -> load(localCache, k, valueFunction)), executor);
+        }
+        return decode(localCache, localCache.asyncCache
+                .get(key, (k, e) -> CompletableFuture.supplyAsync(() -> encode(localCache, load(localCache, k, valueFunction)), e)));
+    }
+
+    /**
+     * 批量获取值，获取不到的key合并为一次调用自定义方法加载
+     *
+     * @param cacheEnum      缓存类型
+     * @param keys           keys
+     * @param valuesFunction 自定义批量加载方法，入参为缺失的key，返回key->value map
+     * @return key->value map，加载不到的key不包含在内
+     */
+    public static Map<String, Object> getAll(CacheEnum cacheEnum, Collection<String> keys, Function<Set<String>, Map<String, Object>> valuesFunction) {
+        return getAll(cacheEnum.getCacheName(), keys, valuesFunction);
+    }
+
+    /**
+     * 批量获取值，获取不到的key合并为一次调用自定义方法加载
+     *
+     * @param cacheName      缓存名
+     * @param keys           keys
+     * @param valuesFunction 自定义批量加载方法，入参为缺失的key，返回key->value map
+     * @return key->value map，加载不到的key不包含在内
+     */
+    public static Map<String, Object> getAll(String cacheName, Collection<String> keys, Function<Set<String>, Map<String, Object>> valuesFunction) {
+        LocalCache localCache = getLocalCache(cacheName);
+        BloomFilter bloomFilter = localCache.bloomFilter;
+        if (bloomFilter != null) {
+            List<String> mightExistKeys = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                if (bloomFilter.mightContain(key)) {
+                    mightExistKeys.add(key);
+                }
+            }
+            keys = mightExistKeys;
+        }
+        Map<String, Object> values;
+        if (localCache.asyncCache == null) {
+            values = localCache.cache
+                    .getAll(keys, missingKeys -> encode(localCache, loadAll(localCache, Collections.unmodifiableSet(missingKeys), valuesFunction)));
+        } else {
+            // 在调用线程加载，不经过线程池
+            values = join(localCache.asyncCache.getAll(keys, (missingKeys, e) -> CompletableFuture
+                    .completedFuture(encode(localCache, loadAll(localCache, Collections.unmodifiableSet(missingKeys), valuesFunction)))));
+        }
+        return decode(localCache, values);
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param cacheEnum 缓存类型
+     * @param map       key->value map
+     */
+    public static void putAll(CacheEnum cacheEnum, Map<String, Object> map) {
+        putAll(cacheEnum.getCacheName(), map);
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param cacheName 缓存名
+     * @param map       key->value map
+     */
+    public static void putAll(String cacheName, Map<String, Object> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        LocalCache localCache = getLocalCache(cacheName);
+        for (String key : map.keySet()) {
+            addToBloomFilter(localCache, key);
+        }
+        if (localCache.spec.isRedisBacked()) {
+            setRedisValues(localCache, map);
+            localCache.cache.putAll(encode(localCache, map));
+            publishInvalidate(localCache, map.keySet().toArray(new String[0]));
+            return;
+        }
+        localCache.cache.putAll(encode(localCache, map));
     }
 
     /**
@@ -57,7 +538,70 @@ public final class CacheUtils {
      * @param value     value
      */
     public static void put(CacheEnum cacheEnum, String key, Object value) {
-        CACHE_MAP.get(cacheEnum).put(key, value);
+        put(cacheEnum.getCacheName(), key, value);
+    }
+
+    /**
+     * 设置值
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @param value     value
+     */
+    public static void put(String cacheName, String key, Object value) {
+        LocalCache localCache = getLocalCache(cacheName);
+        addToBloomFilter(localCache, key);
+        if (localCache.spec.isRedisBacked()) {
+            setRedisValue(localCache, toRedisKey(localCache, key), value);
+            localCache.cache.put(key, encode(localCache, value));
+            publishInvalidate(localCache, key);
+            return;
+        }
+        localCache.cache.put(key, encode(localCache, value));
+    }
+
+    /**
+     * 设置值并单独指定TTL
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     * @param value     value
+     * @param ttl       TTL
+     */
+    public static void put(CacheEnum cacheEnum, String key, Object value, Duration ttl) {
+        put(cacheEnum.getCacheName(), key, value, ttl);
+    }
+
+    /**
+     * 设置值并单独指定TTL，Redis二级缓存在Redis中同样使用该TTL
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @param value     value
+     * @param ttl       TTL，至少1毫秒
+     */
+    public static void put(String cacheName, String key, Object value, Duration ttl) {
+        checkTtl(ttl);
+        LocalCache localCache = getLocalCache(cacheName);
+        addToBloomFilter(localCache, key);
+        if (localCache.spec.isRedisBacked()) {
+            RedisUtils.pSetEx(toRedisKey(localCache, key), toRedisValue(localCache, value), ttl.toMillis());
+            localCache.varExpiration.put(key, encode(localCache, value), ttl);
+            publishInvalidate(localCache, key);
+            return;
+        }
+        localCache.varExpiration.put(key, encode(localCache, value), ttl);
+    }
+
+    /**
+     * 获取key的剩余TTL
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @return 剩余TTL，key不存在时为null，不过期时为很大的值
+     */
+    public static Duration getTtl(String cacheName, String key) {
+        return getLocalCache(cacheName).varExpiration.getExpiresAfter(key).orElse(null);
     }
 
     /**
@@ -69,7 +613,38 @@ public final class CacheUtils {
      * @return value
      */
     public static Object putIfAbsent(CacheEnum cacheEnum, String key, Object value) {
-        return CACHE_MAP.get(cacheEnum).asMap().putIfAbsent(key, value);
+        return putIfAbsent(cacheEnum.getCacheName(), key, value);
+    }
+
+    /**
+     * 设置值，若不存在则返回null,存在返回已存在的value
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @param value     value
+     * @return value
+     */
+    public static Object putIfAbsent(String cacheName, String key, Object value) {
+        LocalCache localCache = getLocalCache(cacheName);
+        addToBloomFilter(localCache, key);
+        if (!localCache.spec.isRedisBacked()) {
+            return decode(localCache, putIfAbsentEncoded(localCache, key, encode(localCache, value)));
+        }
+        String redisKey = toRedisKey(localCache, key);
+        String redisValue = toRedisValue(localCache, value);
+        Duration duration = localCache.expiry.getDuration();
+        Boolean isSet = duration == null
+                ? RedisUtils.setNx(redisKey, redisValue)
+                : RedisUtils.setNxWithExpire(redisKey, redisValue, duration);
+        if (Boolean.TRUE.equals(isSet)) {
+            localCache.cache.put(key, encode(localCache, value));
+            return null;
+        }
+        String existValue = RedisUtils.get(redisKey);
+        if (existValue != null) {
+            localCache.cache.put(key, encode(localCache, existValue));
+        }
+        return existValue;
     }
 
 
@@ -80,6 +655,1128 @@ public final class CacheUtils {
      * @param key       key
      */
     public static void del(CacheEnum cacheEnum, String key) {
-        CACHE_MAP.get(cacheEnum).invalidate(key);
+        del(cacheEnum.getCacheName(), key);
+    }
+
+    /**
+     * 删除key
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     */
+    public static void del(String cacheName, String key) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (localCache.spec.isRedisBacked()) {
+            RedisUtils.del(toRedisKey(localCache, key));
+            localCache.cache.invalidate(key);
+            publishInvalidate(localCache, key);
+            return;
+        }
+        localCache.cache.invalidate(key);
+    }
+
+    /**
+     * 设置加载方法，用于refreshAfterWrite异步刷新及{@link #getAsync(CacheEnum, String)}
+     *
+     * @param cacheEnum     缓存类型
+     * @param valueFunction 加载方法
+     */
+    public static void setLoader(CacheEnum cacheEnum, Function<String, Object> valueFunction) {
+        setLoader(cacheEnum.getCacheName(), valueFunction);
+    }
+
+    /**
+     * 设置加载方法，用于refreshAfterWrite异步刷新及{@link #getAsync(String, String)}
+     *
+     * @param cacheName     缓存名
+     * @param valueFunction 加载方法
+     */
+    public static void setLoader(String cacheName, Function<String, Object> valueFunction) {
+        getLocalCache(cacheName).loader = valueFunction;
+    }
+
+    /**
+     * 设置异步加载/刷新线程池，默认为专用的守护线程池
+     *
+     * @param executor 线程池
+     */
+    public static void setExecutor(Executor executor) {
+        CacheUtils.executor = executor;
+    }
+
+    //endregion
+
+    //region 布隆过滤器
+
+    /**
+     * 设置布隆过滤器，见{@link #setBloomFilter(String, BloomFilter)}
+     *
+     * @param cacheEnum   缓存类型
+     * @param bloomFilter 布隆过滤器，null时移除
+     */
+    public static void setBloomFilter(CacheEnum cacheEnum, BloomFilter bloomFilter) {
+        setBloomFilter(cacheEnum.getCacheName(), bloomFilter);
+    }
+
+    /**
+     * 设置布隆过滤器，过滤器判断不存在的key读取时直接返回null，不访问Redis也不执行加载方法
+     * <p>
+     * 过滤器需预先加入所有已存在的key(如从数据库全量构建)，通过本类put/putAll/putIfAbsent写入的key自动加入，
+     * 其他途径新增的数据需自行加入过滤器，否则会被误判为不存在；仅对String key生效
+     *
+     * @param cacheName   缓存名
+     * @param bloomFilter 布隆过滤器，null时移除
+     */
+    public static void setBloomFilter(String cacheName, BloomFilter bloomFilter) {
+        setBloomFilter(cacheName, bloomFilter, null);
+    }
+
+    /**
+     * 设置布隆过滤器并与Redis位图同步，见{@link #setBloomFilter(String, BloomFilter, String)}
+     *
+     * @param cacheEnum   缓存类型
+     * @param bloomFilter 布隆过滤器，null时移除
+     * @param redisKey    Redis位图key
+     */
+    public static void setBloomFilter(CacheEnum cacheEnum, BloomFilter bloomFilter, String redisKey) {
+        setBloomFilter(cacheEnum.getCacheName(), bloomFilter, redisKey);
+    }
+
+    /**
+     * 设置布隆过滤器并与Redis位图同步：设置时合并Redis中已有的位，之后新加入的key异步SETBIT到Redis，
+     * 其他节点新加入的位通过{@link #syncBloomFilter(String)}合并；各节点过滤器的预计元素数与误判率需一致
+     *
+     * @param cacheName   缓存名
+     * @param bloomFilter 布隆过滤器，null时移除
+     * @param redisKey    Redis位图key，null时仅本地
+     */
+    public static void setBloomFilter(String cacheName, BloomFilter bloomFilter, String redisKey) {
+        LocalCache localCache = getLocalCache(cacheName);
+        if (bloomFilter != null && redisKey != null) {
+            mergeBloomFilter(bloomFilter, redisKey);
+        }
+        localCache.bloomFilterKey = redisKey;
+        localCache.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * 合并Redis位图中其他节点新加入的位
+     *
+     * @param cacheEnum 缓存类型
+     */
+    public static void syncBloomFilter(CacheEnum cacheEnum) {
+        syncBloomFilter(cacheEnum.getCacheName());
+    }
+
+    /**
+     * 合并Redis位图中其他节点新加入的位，未设置Redis位图key时不执行
+     *
+     * @param cacheName 缓存名
+     */
+    public static void syncBloomFilter(String cacheName) {
+        LocalCache localCache = getLocalCache(cacheName);
+        BloomFilter bloomFilter = localCache.bloomFilter;
+        String redisKey = localCache.bloomFilterKey;
+        if (bloomFilter != null && redisKey != null) {
+            mergeBloomFilter(bloomFilter, redisKey);
+        }
+    }
+
+    /**
+     * 将本地布隆过滤器整体写入Redis位图
+     *
+     * @param cacheEnum 缓存类型
+     */
+    public static void saveBloomFilter(CacheEnum cacheEnum) {
+        saveBloomFilter(cacheEnum.getCacheName());
+    }
+
+    /**
+     * 将本地布隆过滤器整体写入Redis位图，先合并Redis中已有的位再覆盖写入，用于全量构建后发布；
+     * 合并与写入之间其他节点SETBIT的位会被覆盖，应在构建阶段调用
+     *
+     * @param cacheName 缓存名
+     */
+    public static void saveBloomFilter(String cacheName) {
+        LocalCache localCache = getLocalCache(cacheName);
+        BloomFilter bloomFilter = localCache.bloomFilter;
+        String redisKey = localCache.bloomFilterKey;
+        if (bloomFilter == null || redisKey == null) {
+            return;
+        }
+        mergeBloomFilter(bloomFilter, redisKey);
+        RedisUtils.commands(RedisCodecs.bytes()).set(redisKey, bloomFilter.toBytes());
+    }
+
+    /**
+     * 布隆过滤器判断key不存在
+     */
+    private static boolean isAbsent(LocalCache localCache, String key) {
+        BloomFilter bloomFilter = localCache.bloomFilter;
+        return bloomFilter != null && !bloomFilter.mightContain(key);
+    }
+
+    /**
+     * 将key加入布隆过滤器，有新置位且设置了Redis位图key时异步同步到Redis
+     */
+    private static void addToBloomFilter(LocalCache localCache, String key) {
+        BloomFilter bloomFilter = localCache.bloomFilter;
+        if (bloomFilter == null || !bloomFilter.put(key)) {
+            return;
+        }
+        String redisKey = localCache.bloomFilterKey;
+        if (redisKey == null) {
+            return;
+        }
+        RedisAsync async = RedisUtils.async();
+        bloomFilter.forEachBit(key, offset -> async.setBit(redisKey, offset, 1).whenComplete((result, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+            }
+        }));
+    }
+
+    private static void mergeBloomFilter(BloomFilter bloomFilter, String redisKey) {
+        byte[] bitmap = RedisUtils.commands(RedisCodecs.bytes()).get(redisKey);
+        if (bitmap != null) {
+            bloomFilter.merge(bitmap);
+        }
+    }
+
+    //endregion
+
+    //region long key读写
+
+    /**
+     * 获取值
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     * @return value
+     */
+    public static Object get(CacheEnum cacheEnum, long key) {
+        return get(cacheEnum.getCacheName(), key);
+    }
+
+    /**
+     * 获取值，读取路径不分配对象
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @return value
+     */
+    public static Object get(String cacheName, long key) {
+        return getLongKeyCache(cacheName).get(key);
+    }
+
+    /**
+     * 获取值，若获取不到，则执行自定义方法设置值
+     *
+     * @param cacheEnum     缓存类型
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value
+     */
+    public static Object getAndSet(CacheEnum cacheEnum, long key, LongFunction<Object> valueFunction) {
+        return getAndSet(cacheEnum.getCacheName(), key, valueFunction);
+    }
+
+    /**
+     * 获取值，若获取不到，则执行自定义方法设置值；自定义方法在锁外执行，并发未命中时可能执行多次，但只保留先写入的值
+     *
+     * @param cacheName     缓存名
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value
+     */
+    public static Object getAndSet(String cacheName, long key, LongFunction<Object> valueFunction) {
+        return getLongKeyCache(cacheName).get(key, valueFunction);
+    }
+
+    /**
+     * 设置值
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     * @param value     value
+     */
+    public static void put(CacheEnum cacheEnum, long key, Object value) {
+        put(cacheEnum.getCacheName(), key, value);
+    }
+
+    /**
+     * 设置值
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @param value     value
+     */
+    public static void put(String cacheName, long key, Object value) {
+        getLongKeyCache(cacheName).put(key, value);
+    }
+
+    /**
+     * 设置值并单独指定TTL
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     * @param value     value
+     * @param ttl       TTL
+     */
+    public static void put(CacheEnum cacheEnum, long key, Object value, Duration ttl) {
+        put(cacheEnum.getCacheName(), key, value, ttl);
+    }
+
+    /**
+     * 设置值并单独指定TTL
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     * @param value     value
+     * @param ttl       TTL，至少1毫秒
+     */
+    public static void put(String cacheName, long key, Object value, Duration ttl) {
+        checkTtl(ttl);
+        getLongKeyCache(cacheName).put(key, value, ttl);
+    }
+
+    /**
+     * 删除key
+     *
+     * @param cacheEnum 缓存类型
+     * @param key       key
+     */
+    public static void del(CacheEnum cacheEnum, long key) {
+        del(cacheEnum.getCacheName(), key);
+    }
+
+    /**
+     * 删除key
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     */
+    public static void del(String cacheName, long key) {
+        getLongKeyCache(cacheName).remove(key);
+    }
+
+    /**
+     * 获取缓存当前个数(含未清理的过期条目)
+     *
+     * @param cacheName 缓存名
+     * @return size
+     */
+    public static long size(String cacheName) {
+        LongKeyCache longKeyCache = LONG_KEY_CACHE_MAP.get(cacheName);
+        return longKeyCache == null ? getLocalCache(cacheName).cache.estimatedSize() : longKeyCache.size();
+    }
+
+    //endregion
+
+    //region 统计
+
+    /**
+     * 获取统计快照，未开启统计的缓存仅返回当前缓存个数
+     *
+     * @param cacheEnum 缓存类型
+     * @return 统计快照
+     */
+    public static CacheStatsSnapshot stats(CacheEnum cacheEnum) {
+        return stats(cacheEnum.getCacheName());
+    }
+
+    /**
+     * 获取统计快照，未开启统计的缓存仅返回当前缓存个数
+     *
+     * @param cacheName 缓存名
+     * @return 统计快照
+     */
+    public static CacheStatsSnapshot stats(String cacheName) {
+        LocalCache localCache = getLocalCache(cacheName);
+        CacheStats stats = localCache.cache.stats();
+        LatencyHistogram loadLatency = localCache.statsCounter == null ? new LatencyHistogram() : localCache.statsCounter.getLoadLatency();
+        return new CacheStatsSnapshot(cacheName,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.loadSuccessCount(),
+                stats.loadFailureCount(),
+                stats.averageLoadPenalty(),
+                loadLatency.getPercentile(50),
+                loadLatency.getPercentile(99),
+                loadLatency.getPercentile(99.9),
+                stats.evictionCount(),
+                localCache.cache.estimatedSize());
+    }
+
+    /**
+     * 定时将已开启统计的缓存快照输出到日志，重复调用会替换之前的定时任务
+     *
+     * @param period 输出间隔
+     */
+    public static synchronized void startStatsReporter(Duration period) {
+        stopStatsReporter();
+        statsReporter = newScheduler("cache-stats-reporter");
+        statsReporter.scheduleAtFixedRate(() -> {
+            for (LocalCache localCache : CACHE_MAP.values()) {
+                if (localCache.statsCounter != null) {
+                    LOGGER.info(stats(localCache.name).toString());
+                }
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止统计日志输出
+     */
+    public static synchronized void stopStatsReporter() {
+        if (statsReporter != null) {
+            statsReporter.shutdownNow();
+            statsReporter = null;
+        }
+    }
+
+    private static void registerStatsMBean(String cacheName) {
+        try {
+            ObjectName objectName = new ObjectName(STATS_OBJECT_NAME_PREFIX + ObjectName.quote(cacheName));
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsBean(() -> stats(cacheName)), objectName);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void unregisterStatsMBean(String cacheName) {
+        try {
+            ObjectName objectName = new ObjectName(STATS_OBJECT_NAME_PREFIX + ObjectName.quote(cacheName));
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    //endregion
+
+    //region 快照
+
+    /**
+     * 开启快照：立即从目录恢复开启快照的缓存，之后定时写入，并在JVM退出时写入一次；重复调用会替换之前的配置
+     *
+     * @param directory 快照目录，每个缓存对应一个"缓存名.snapshot"文件
+     * @param period    写入间隔
+     */
+    public static synchronized void enableSnapshot(Path directory, Duration period) {
+        disableSnapshot();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not create cache snapshot directory: " + directory, ex);
+        }
+        for (LocalCache localCache : CACHE_MAP.values()) {
+            if (localCache.spec.isSnapshot()) {
+                loadSnapshot(localCache, directory);
+            }
+        }
+        snapshotDirectory = directory;
+        snapshotWriter = newScheduler("cache-snapshot-writer");
+        snapshotWriter.scheduleWithFixedDelay(CacheUtils::saveSnapshot, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+        snapshotShutdownHook = new Thread(CacheUtils::saveSnapshot, "cache-snapshot-shutdown");
+        Runtime.getRuntime().addShutdownHook(snapshotShutdownHook);
+    }
+
+    /**
+     * 关闭快照定时写入，已有快照文件保留
+     */
+    public static synchronized void disableSnapshot() {
+        snapshotDirectory = null;
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdownNow();
+            snapshotWriter = null;
+        }
+        if (snapshotShutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(snapshotShutdownHook);
+            } catch (IllegalStateException ex) {
+                // JVM正在退出
+            }
+            snapshotShutdownHook = null;
+        }
+    }
+
+    /**
+     * 立即写入所有开启快照的缓存，未开启快照时不执行
+     */
+    public static void saveSnapshot() {
+        Path directory = snapshotDirectory;
+        if (directory == null) {
+            return;
+        }
+        for (LocalCache localCache : CACHE_MAP.values()) {
+            if (!localCache.spec.isSnapshot()) {
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            // 写入时逐个转换，不预先复制整个缓存
+            Iterable<CacheSnapshot.Entry> entries = () -> localCache.cache.asMap().entrySet().stream()
+                    .map(entry -> toSnapshotEntry(localCache, entry.getKey(), entry.getValue(), now))
+                    .filter(Objects::nonNull)
+                    .iterator();
+            // 与注销互斥，注销后不再写入，避免以相同名称重新注册时恢复旧内容
+            synchronized (localCache) {
+                if (CACHE_MAP.get(localCache.name) != localCache) {
+                    continue;
+                }
+                try {
+                    CacheSnapshot.write(toSnapshotFile(directory, localCache), entries);
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static CacheSnapshot.Entry toSnapshotEntry(LocalCache localCache, String key, Object encodedValue, long now) {
+        Duration ttl = localCache.varExpiration.getExpiresAfter(key).orElse(null);
+        if (ttl == null) {
+            return null;
+        }
+        Object value = decode(localCache, encodedValue);
+        if (value == null) {
+            return null;
+        }
+        long expireAt = ttl.toDays() > SNAPSHOT_NEVER_EXPIRE_DAYS ? CacheSnapshot.NEVER_EXPIRE : now + ttl.toMillis();
+        return new CacheSnapshot.Entry(key, value, expireAt);
+    }
+
+    private static void loadSnapshot(LocalCache localCache, Path directory) {
+        try {
+            long now = System.currentTimeMillis();
+            for (CacheSnapshot.Entry entry : CacheSnapshot.read(toSnapshotFile(directory, localCache))) {
+                Object value = encode(localCache, entry.getValue());
+                if (entry.getExpireAt() == CacheSnapshot.NEVER_EXPIRE) {
+                    localCache.cache.put(entry.getKey(), value);
+                } else if (entry.getExpireAt() > now) {
+                    localCache.varExpiration.put(entry.getKey(), value, Duration.ofMillis(entry.getExpireAt() - now));
+                }
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void deleteSnapshot(LocalCache localCache) {
+        Path directory = snapshotDirectory;
+        if (directory == null) {
+            return;
+        }
+        synchronized (localCache) {
+            try {
+                Files.deleteIfExists(toSnapshotFile(directory, localCache));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static Path toSnapshotFile(Path directory, LocalCache localCache) {
+        return directory.resolve(localCache.name + ".snapshot");
+    }
+
+    //endregion
+
+    //region 加载
+
+    /**
+     * 创建缓存加载器，加载/刷新委托给{@link #setLoader}设置的方法，未设置时刷新保留旧值
+     *
+     * @param localCache 缓存
+     * @return loader
+     */
+    private static CacheLoader<String, Object> newLoader(LocalCache localCache) {
+        return new CacheLoader<String, Object>() {
+            @Override
+            public Object load(String key) {
+                return encode(localCache, CacheUtils.load(localCache, key, localCache.loader));
+            }
+
+            @Override
+            public CompletableFuture<Object> asyncReload(String key, Object oldValue, Executor executor) {
+                Function<String, Object> valueFunction = localCache.loader;
+                if (valueFunction == null && !localCache.spec.isRedisBacked()) {
+                    return CompletableFuture.completedFuture(oldValue);
+                }
+                return CompletableFuture.supplyAsync(() -> {
+                    Object value = CacheUtils.reload(localCache, key, valueFunction);
+                    return value == null ? oldValue : encode(localCache, value);
+                }, executor);
+            }
+        };
+    }
+
+    /**
+     * 读取本地缓存，未命中时在调用线程执行加载方法，同一key并发加载时只执行一次
+     *
+     * @param localCache      缓存
+     * @param key             key
+     * @param mappingFunction 加载方法，返回未编码的值
+     * @return 解码后的value
+     */
+    private static Object getOrLoad(LocalCache localCache, String key, Function<String, Object> mappingFunction) {
+        while (true) {
+            Object value;
+            if (localCache.asyncCache != null) {
+                // 先写入未完成的future，在compute之外于调用线程加载，加载期间不持有Caffeine的桶锁，也不经过线程池
+                CompletableFuture<Object> created = new CompletableFuture<>();
+                CompletableFuture<Object> future = localCache.asyncCache.get(key, (k, e) -> created);
+                if (future == created) {
+                    complete(created, () -> encode(localCache, mappingFunction.apply(key)));
+                }
+                value = join(future);
+            } else if (localCache.spec.getSingleFlightLease() != null) {
+                // 单飞加载可能等待其他节点直至租约到期，不在compute中等待
+                value = loadOutsideCompute(localCache, key, mappingFunction);
+            } else {
+                value = localCache.cache.get(key, k -> encode(localCache, mappingFunction.apply(k)));
+            }
+            Object decoded = decode(localCache, value);
+            // 堆外块读取期间被淘汰或覆盖时重新读取
+            if (decoded != null || value == null) {
+                return decoded;
+            }
+        }
+    }
+
+    /**
+     * 在Caffeine compute之外加载，同一key并发加载时只执行一次，其他线程等待其结果
+     *
+     * @param localCache      缓存
+     * @param key             key
+     * @param mappingFunction 加载方法，返回未编码的值
+     * @return 编码后的value
+     */
+    private static Object loadOutsideCompute(LocalCache localCache, String key, Function<String, Object> mappingFunction) {
+        Object value = localCache.cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> loading = localCache.loading.putIfAbsent(key, created);
+        if (loading != null) {
+            return join(loading);
+        }
+        try {
+            complete(created, () -> {
+                Object present = localCache.cache.policy().getIfPresentQuietly(key);
+                if (present != null) {
+                    return present;
+                }
+                long startNanos = System.nanoTime();
+                Object loaded;
+                try {
+                    loaded = encode(localCache, mappingFunction.apply(key));
+                } catch (RuntimeException | Error ex) {
+                    if (localCache.statsCounter != null) {
+                        localCache.statsCounter.recordLoadFailure(System.nanoTime() - startNanos);
+                    }
+                    throw ex;
+                }
+                if (localCache.statsCounter != null) {
+                    localCache.statsCounter.recordLoadSuccess(System.nanoTime() - startNanos);
+                }
+                if (loaded == null) {
+                    return null;
+                }
+                Object exist = putIfAbsentEncoded(localCache, key, loaded);
+                return exist == null ? loaded : exist;
+            });
+            return join(created);
+        } finally {
+            localCache.loading.remove(key, created);
+        }
+    }
+
+    /**
+     * 执行加载并完成future，加载方法的异常同时抛给调用方
+     */
+    private static void complete(CompletableFuture<Object> future, Supplier<Object> supplier) {
+        try {
+            future.complete(supplier.get());
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 等待加载结果，加载方法抛出的RuntimeException原样抛出
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 加载值，Redis二级缓存先读取Redis，读取不到再执行自定义方法并写入Redis，开启单飞时跨节点仅一个节点执行自定义方法
+     *
+     * @param localCache    缓存
+     * @param key           key
+     * @param valueFunction 自定义方法，可为null
+     * @return value
+     */
+    private static Object load(LocalCache localCache, String key, Function<String, Object> valueFunction) {
+        if (!localCache.spec.isRedisBacked()) {
+            return valueFunction == null ? null : valueFunction.apply(key);
+        }
+        String redisKey = toRedisKey(localCache, key);
+        String value = RedisUtils.get(redisKey);
+        if (value != null || valueFunction == null) {
+            return value;
+        }
+        if (localCache.spec.getSingleFlightLease() != null) {
+            return loadSingleFlight(localCache, key, redisKey, valueFunction);
+        }
+        return loadAndSetRedis(localCache, key, redisKey, valueFunction);
+    }
+
+    /**
+     * 跨节点单飞加载，获得租约的节点执行自定义方法并写入Redis，其他节点轮询Redis等待结果，
+     * 租约到期或租约释放后仍无结果时自行加载；加载结果为空时租约期内其他节点直接返回null
+     *
+     * @param localCache    缓存
+     * @param key           key
+     * @param redisKey      Redis key
+     * @param valueFunction 自定义方法
+     * @return value
+     */
+    private static Object loadSingleFlight(LocalCache localCache, String key, String redisKey, Function<String, Object> valueFunction) {
+        Duration lease = localCache.spec.getSingleFlightLease();
+        String leaseKey = redisKey + LEASE_SUFFIX;
+        String token = newLeaseToken();
+        if (Boolean.TRUE.equals(RedisUtils.setNxWithExpire(leaseKey, token, lease))) {
+            Object loaded = null;
+            boolean isLoaded = false;
+            try {
+                loaded = loadAndSetRedis(localCache, key, redisKey, valueFunction);
+                isLoaded = true;
+                return loaded;
+            } finally {
+                if (isLoaded && loaded == null) {
+                    // 加载结果为空时租约保留到期满并替换为空值标记，其他节点期间直接返回null，不再各自加载
+                    RedisUtils.eval(MARK_NULL_LEASE_SCRIPT, new String[]{leaseKey}, new String[]{token, NULL_LEASE_VALUE}, Long.class);
+                } else {
+                    RedisUtils.eval(RELEASE_LEASE_SCRIPT, new String[]{leaseKey}, new String[]{token}, Long.class);
+                }
+            }
+        }
+        long deadline = System.nanoTime() + lease.toNanos();
+        while (true) {
+            Map<String, String> values = RedisUtils.mGet(redisKey, leaseKey);
+            String value = values.get(redisKey);
+            if (value != null) {
+                return value;
+            }
+            String leaseValue = values.get(leaseKey);
+            if (NULL_LEASE_VALUE.equals(leaseValue)) {
+                return null;
+            }
+            if (leaseValue == null || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return loadAndSetRedis(localCache, key, redisKey, valueFunction);
+    }
+
+    private static Object loadAndSetRedis(LocalCache localCache, String key, String redisKey, Function<String, Object> valueFunction) {
+        Object loaded = valueFunction.apply(key);
+        if (loaded != null) {
+            setRedisValue(localCache, redisKey, loaded);
+        }
+        return loaded;
+    }
+
+    private static String newLeaseToken() {
+        return NODE_ID + ":" + Thread.currentThread().getId() + ":" + System.nanoTime();
+    }
+
+    /**
+     * 批量加载值，Redis二级缓存先通过mGet读取Redis，剩余的key再执行自定义方法并写入Redis
+     *
+     * @param localCache     缓存
+     * @param keys           缺失的keys
+     * @param valuesFunction 自定义批量加载方法
+     * @return key->value map
+     */
+    private static Map<String, Object> loadAll(LocalCache localCache, Set<String> keys, Function<Set<String>, Map<String, Object>> valuesFunction) {
+        if (!localCache.spec.isRedisBacked()) {
+            Map<String, Object> loaded = valuesFunction.apply(keys);
+            return loaded == null ? Collections.emptyMap() : loaded;
+        }
+        String[] redisKeys = keys.stream().map(key -> toRedisKey(localCache, key)).toArray(String[]::new);
+        Map<String, String> redisValues = RedisUtils.mGet(redisKeys);
+        Map<String, Object> result = new HashMap<>(keys.size() * 2);
+        Set<String> remainKeys = new HashSet<>(keys.size() * 2);
+        for (String key : keys) {
+            String value = redisValues.get(toRedisKey(localCache, key));
+            if (value == null) {
+                remainKeys.add(key);
+            } else {
+                result.put(key, value);
+            }
+        }
+        if (!remainKeys.isEmpty()) {
+            Map<String, Object> loaded = valuesFunction.apply(Collections.unmodifiableSet(remainKeys));
+            if (loaded != null && !loaded.isEmpty()) {
+                setRedisValues(localCache, loaded);
+                result.putAll(loaded);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 刷新值，有加载方法时直接执行并写入Redis(延长Redis中的TTL)，否则从Redis刷新；开启单飞时仅获得租约的节点执行加载方法
+     *
+     * @param localCache    缓存
+     * @param key           key
+     * @param valueFunction 加载方法，可为null
+     * @return value，获取不到时为null
+     */
+    private static Object reload(LocalCache localCache, String key, Function<String, Object> valueFunction) {
+        Object value;
+        if (valueFunction == null) {
+            value = RedisUtils.get(toRedisKey(localCache, key));
+        } else if (!localCache.spec.isRedisBacked()) {
+            value = valueFunction.apply(key);
+        } else if (localCache.spec.getSingleFlightLease() == null) {
+            value = loadAndSetRedis(localCache, key, toRedisKey(localCache, key), valueFunction);
+        } else {
+            value = reloadSingleFlight(localCache, key, valueFunction);
+        }
+        return value;
+    }
+
+    /**
+     * 跨节点单飞刷新，未获得租约时不等待，返回Redis中的值(其他节点刷新完成前为旧值)
+     *
+     * @param localCache    缓存
+     * @param key           key
+     * @param valueFunction 加载方法
+     * @return value，获取不到时为null
+     */
+    private static Object reloadSingleFlight(LocalCache localCache, String key, Function<String, Object> valueFunction) {
+        String redisKey = toRedisKey(localCache, key);
+        String leaseKey = redisKey + LEASE_SUFFIX;
+        String token = newLeaseToken();
+        if (!Boolean.TRUE.equals(RedisUtils.setNxWithExpire(leaseKey, token, localCache.spec.getSingleFlightLease()))) {
+            return RedisUtils.get(redisKey);
+        }
+        try {
+            return loadAndSetRedis(localCache, key, redisKey, valueFunction);
+        } finally {
+            RedisUtils.eval(RELEASE_LEASE_SCRIPT, new String[]{leaseKey}, new String[]{token}, Long.class);
+        }
+    }
+
+    //endregion
+
+    //region 编解码
+
+    private static Object encode(LocalCache localCache, Object value) {
+        return CacheValueCodec.encode(value, localCache.spec.getStoreMode(), localCache.arena);
+    }
+
+    private static Object decode(LocalCache localCache, Object value) {
+        return CacheValueCodec.decode(value, localCache.spec.getStoreMode());
+    }
+
+    /**
+     * 写入编码后的值，key已存在时释放未写入的堆外块(未进入缓存的值不会触发removalListener)
+     *
+     * @return 已存在的编码后的value，不存在时为null
+     */
+    private static Object putIfAbsentEncoded(LocalCache localCache, String key, Object encoded) {
+        Object exist = localCache.cache.asMap().putIfAbsent(key, encoded);
+        if (exist != null && localCache.arena != null) {
+            localCache.arena.release(encoded);
+        }
+        return exist;
+    }
+
+    private static Map<String, Object> encode(LocalCache localCache, Map<String, Object> map) {
+        if (localCache.spec.getStoreMode() == CacheStoreModeEnum.OBJECT) {
+            return map;
+        }
+        Map<String, Object> encoded = new HashMap<>(map.size() * 2);
+        map.forEach((key, value) -> encoded.put(key, encode(localCache, value)));
+        return encoded;
+    }
+
+    private static Map<String, Object> decode(LocalCache localCache, Map<String, Object> map) {
+        if (localCache.spec.getStoreMode() == CacheStoreModeEnum.OBJECT) {
+            return map;
+        }
+        Map<String, Object> decoded = new HashMap<>(map.size() * 2);
+        map.forEach((key, value) -> {
+            Object decodedValue = decode(localCache, value);
+            // 堆外块读取期间被淘汰时视为缺失
+            if (decodedValue != null) {
+                decoded.put(key, decodedValue);
+            }
+        });
+        return decoded;
+    }
+
+    private static CompletableFuture<Object> decode(LocalCache localCache, CompletableFuture<Object> future) {
+        if (localCache.spec.getStoreMode() == CacheStoreModeEnum.OBJECT) {
+            return future;
+        }
+        return future.thenApply(value -> decode(localCache, value));
+    }
+
+    //endregion
+
+    //region Redis二级缓存
+
+    private static String toRedisKey(LocalCache localCache, String key) {
+        return localCache.name + ":" + key;
+    }
+
+    private static String toRedisValue(LocalCache localCache, Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw new IllegalArgumentException("Redis backed cache [" + localCache.name + "] only supports String value");
+    }
+
+    private static void setRedisValue(LocalCache localCache, String redisKey, Object value) {
+        String redisValue = toRedisValue(localCache, value);
+        Duration duration = localCache.expiry.getDuration();
+        if (duration == null) {
+            RedisUtils.set(redisKey, redisValue);
+        } else {
+            RedisUtils.pSetEx(redisKey, redisValue, duration.toMillis());
+        }
+    }
+
+    private static void setRedisValues(LocalCache localCache, Map<String, Object> map) {
+        Map<String, String> redisMap = new HashMap<>(map.size() * 2);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            redisMap.put(toRedisKey(localCache, entry.getKey()), toRedisValue(localCache, entry.getValue()));
+        }
+        Duration duration = localCache.expiry.getDuration();
+        if (duration == null) {
+            RedisUtils.mSet(redisMap);
+        } else {
+            RedisUtils.mPSetEx(redisMap, duration.toMillis());
+        }
+    }
+
+    /**
+     * 订阅失效广播，仅在存在Redis二级缓存时订阅一次
+     */
+    private static synchronized void subscribeInvalidate() {
+        if (!isSubscribed) {
+            RedisUtils.subscribe(INVALIDATE_CHANNEL, CacheUtils::onInvalidate);
+            isSubscribed = true;
+        }
+    }
+
+    /**
+     * 广播失效消息
+     *
+     * @param localCache 缓存
+     * @param keys       keys
+     */
+    private static void publishInvalidate(LocalCache localCache, String... keys) {
+        StringBuilder builder = new StringBuilder(NODE_ID).append(MESSAGE_SEPARATOR).append(localCache.name);
+        for (String key : keys) {
+            builder.append(MESSAGE_SEPARATOR).append(key);
+        }
+        RedisUtils.publish(INVALIDATE_CHANNEL, builder.toString());
+    }
+
+    /**
+     * 处理其他节点发出的失效消息
+     *
+     * @param message 失效消息
+     */
+    private static void onInvalidate(String message) {
+        String[] parts = message.split(MESSAGE_SEPARATOR);
+        if (parts.length < 3 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+        LocalCache localCache = CACHE_MAP.get(parts[1]);
+        if (localCache == null) {
+            return;
+        }
+        for (int i = 2; i < parts.length; i++) {
+            localCache.cache.invalidate(parts[i]);
+        }
+    }
+
+    //endregion
+
+    private static ExecutorService newLoaderExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), runnable -> {
+            Thread thread = new Thread(runnable, "cache-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ScheduledExecutorService newScheduler(String threadName) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 校验单独指定的TTL，Redis的PSETEX不接受0及负数
+     */
+    private static void checkTtl(Duration ttl) {
+        if (ttl == null || ttl.toMillis() <= 0L) {
+            throw new IllegalArgumentException("TTL must be at least 1ms: " + ttl);
+        }
+    }
+
+    private static LocalCache getLocalCache(String cacheName) {
+        LocalCache localCache = CACHE_MAP.get(cacheName);
+        if (localCache == null) {
+            if (LONG_KEY_CACHE_MAP.containsKey(cacheName)) {
+                throw new IllegalArgumentException("Cache [" + cacheName + "] is a long key cache");
+            }
+            throw new IllegalArgumentException("Cache [" + cacheName + "] is not registered");
+        }
+        return localCache;
+    }
+
+    private static LongKeyCache getLongKeyCache(String cacheName) {
+        LongKeyCache longKeyCache = LONG_KEY_CACHE_MAP.get(cacheName);
+        if (longKeyCache == null) {
+            throw new IllegalArgumentException("Cache [" + cacheName + "] is not a registered long key cache");
+        }
+        return longKeyCache;
+    }
+
+    /**
+     * 单个缓存及其运行时状态
+     */
+    private static final class LocalCache {
+
+        private final String name;
+
+        private final CacheSpec spec;
+
+        /**
+         * 仅asyncLoad的缓存创建，否则为null
+         */
+        private final AsyncLoadingCache<String, Object> asyncCache;
+
+        private final Cache<String, Object> cache;
+
+        private final CacheStatsCounter statsCounter;
+
+        /**
+         * 堆外内存分配器，仅OFF_HEAP存储方式创建
+         */
+        private final OffHeapArena arena;
+
+        /**
+         * 过期策略，默认TTL可运行时调整
+         */
+        private final CacheExpiry expiry;
+
+        private final Policy.VarExpiration<String, Object> varExpiration;
+
+        /**
+         * 加载方法
+         */
+        private volatile Function<String, Object> loader;
+
+        /**
+         * 开启单飞的缓存在compute之外加载，key -> 进行中的加载
+         */
+        private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+        /**
+         * 布隆过滤器，判断不存在的key直接返回null
+         */
+        private volatile BloomFilter bloomFilter;
+
+        /**
+         * 布隆过滤器同步的Redis位图key
+         */
+        private volatile String bloomFilterKey;
+
+        private LocalCache(String name, CacheSpec spec) {
+            if (spec.getMaximumWeight() > 0 && spec.getStoreMode() == CacheStoreModeEnum.OBJECT && spec.getWeigher() == null) {
+                throw new IllegalArgumentException("Cache [" + name + "] stores objects by weight and requires a weigher");
+            }
+            if (spec.getStoreMode() == CacheStoreModeEnum.OFF_HEAP && spec.getMaximumWeight() <= 0) {
+                throw new IllegalArgumentException("Cache [" + name + "] stores values off heap and requires maximumWeight");
+            }
+            if (spec.getSingleFlightLease() != null && spec.getSingleFlightLease().toMillis() <= 0L) {
+                throw new IllegalArgumentException("Cache [" + name + "] singleFlightLease must be at least 1ms");
+            }
+            this.name = name;
+            this.spec = spec;
+            this.expiry = new CacheExpiry(spec.isAfterAccess(), spec.getDuration());
+            Caffeine<String, Object> caffeine = Caffeine.newBuilder()
+                    .expireAfter(expiry)
+                    .executor(command -> executor.execute(command));
+            if (spec.getMaximumWeight() > 0) {
+                caffeine.maximumWeight(spec.getMaximumWeight())
+                        .weigher(spec.getWeigher() == null ? CacheWeighers.bytes() : spec.getWeigher());
+            } else {
+                caffeine.maximumSize(spec.getMaximumSize());
+            }
+            if (spec.getRefreshAfterWrite() != null) {
+                caffeine.refreshAfterWrite(spec.getRefreshAfterWrite());
+            }
+            if (spec.getStoreMode() == CacheStoreModeEnum.OFF_HEAP) {
+                OffHeapArena offHeapArena = new OffHeapArena(spec.getMaximumWeight() + spec.getMaximumWeight() / 4);
+                caffeine.removalListener((key, value, cause) -> offHeapArena.release(value));
+                this.arena = offHeapArena;
+            } else {
+                this.arena = null;
+            }
+            if (spec.isRecordStats()) {
+                CacheStatsCounter counter = new CacheStatsCounter();
+                caffeine.recordStats(() -> counter);
+                this.statsCounter = counter;
+            } else {
+                this.statsCounter = null;
+            }
+            if (spec.isAsyncLoad()) {
+                this.asyncCache = caffeine.buildAsync(newLoader(this));
+                this.cache = asyncCache.synchronous();
+            } else {
+                this.asyncCache = null;
+                this.cache = spec.getRefreshAfterWrite() == null ? caffeine.build() : caffeine.build(newLoader(this));
+            }
+            this.varExpiration = cache.policy().expireVariably().orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    private CacheUtils() {
+        throw new UnsupportedOperationException();
     }
 }
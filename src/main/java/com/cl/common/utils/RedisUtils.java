@@ -1,21 +1,93 @@
 package com.cl.common.utils;
 
+import com.cl.common.utils.redis.RedisAsync;
+import com.cl.common.utils.redis.RedisClientCache;
+import com.cl.common.utils.redis.RedisCodecs;
+import com.cl.common.utils.redis.RedisCommandMetrics;
+import com.cl.common.utils.redis.RedisConnectionPool;
+import com.cl.common.utils.redis.RedisCounterAggregator;
+import com.cl.common.utils.redis.RedisConnections;
+import com.cl.common.utils.redis.RedisPoolStats;
+import com.cl.common.utils.redis.RedisPoolStatsBean;
+import com.cl.common.utils.redis.RedisScript;
+import com.cl.common.utils.redis.RedisWriteBatcher;
+import com.cl.common.utils.redis.RedisWriteInvalidation;
+import com.cl.common.utils.redis.ScriptOutputTypes;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LMoveArgs;
+import io.lettuce.core.Limit;
+import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.Range;
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanIterator;
 import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.SetArgs;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.XAutoClaimArgs;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.StatefulConnection;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.sync.RedisCommands;
-
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.masterreplica.MasterReplica;
+import io.lettuce.core.models.stream.ClaimedMessages;
+import io.lettuce.core.models.stream.PendingMessage;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Redis工具类
+ * <p>
+ * 支持单机、哨兵({@link #initSentinel})与集群({@link #initCluster})模式，哨兵与集群模式可通过ReadFrom将读取命令路由到从节点
+ * <p>
+ * 普通命令共用一个多路复用连接；阻塞命令、事务及{@link #execute}从独占连接池借出连接，不影响共享连接上的其他命令
+ * <p>
+ * 开启{@link #enableClientCache}后，get/hGet优先读取由服务端推送失效的本地缓存
+ * <p>
+ * 默认读写UTF-8字符串，byte[]、对象及压缩值通过{@link #commands(RedisCodec)}配合{@link RedisCodecs}读写
+ * <p>
+ * 各命令类型的调用次数与耗时分布通过{@link #commandMetrics}或JMX查看
  *
  * @author: CarterCL
  * @date: 2022/1/1 14:50
@@ -35,14 +107,107 @@ public final class RedisUtils {
 
     private static final String OK = "OK";
 
+    private static final int DEFAULT_POOL_SIZE = 8;
+
+    private static final String POOL_STATS_OBJECT_NAME = "com.cl.common:type=RedisPoolStats";
+
+    private static final String COMMAND_METRICS_OBJECT_NAME = "com.cl.common:type=RedisCommandMetrics";
+
     //endregion
 
-    private static RedisClient redisClient;
+    private static AbstractRedisClient redisClient;
+
+    /**
+     * 共享连接，单机为StatefulRedisConnection，哨兵为StatefulRedisMasterReplicaConnection，集群为StatefulRedisClusterConnection
+     */
+    private static StatefulConnection<String, String> connection;
+
+    private static RedisClusterCommands<String, String> commands;
 
-    private static StatefulRedisConnection<String, String> connection;
+    private static RedisClusterAsyncCommands<String, String> asyncCommands;
+
+    /**
+     * 创建新连接，用于管道、独占连接池与自定义codec连接
+     */
+    private static ConnectionFactory connectionFactory;
+
+    /**
+     * 创建发布订阅连接
+     */
+    private static Supplier<StatefulRedisPubSubConnection<String, String>> pubSubConnectionFactory;
+
+    /**
+     * 读取节点选择，为null时读写均在主节点
+     */
+    private static ReadFrom readFrom;
+
+    private static StatefulRedisPubSubConnection<String, String> pubSubConnection;
+
+    /**
+     * 管道专用连接，关闭自动flush，多个管道共用
+     */
+    private static StatefulConnection<String, String> pipelineConnection;
+
+    /**
+     * 独占连接池，用于阻塞命令与事务
+     */
+    private static RedisConnectionPool connectionPool;
+
+    /**
+     * 频道 -> 订阅者
+     */
+    private static final Map<String, List<Consumer<String>>> SUBSCRIBERS = new ConcurrentHashMap<>();
 
     private static boolean isInit = false;
 
+    /**
+     * 客户端缓存，为null时未开启
+     */
+    private static volatile RedisClientCache clientCache;
+
+    private static final Object PIPELINE_LOCK = new Object();
+
+    /**
+     * 通过newCounterAggregator创建且未关闭的计数合并器，关闭连接前先写完其剩余增量
+     */
+    private static final Set<RedisCounterAggregator> COUNTER_AGGREGATORS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * JVM退出时关闭计数合并器，创建第一个计数合并器时注册
+     */
+    private static Thread counterShutdownHook;
+
+    /**
+     * codec -> 该codec的共享连接
+     */
+    private static final Map<RedisCodec<String, ?>, StatefulConnection<String, ?>> CODEC_CONNECTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * codec -> 该codec连接上写入后失效客户端缓存的同步命令，每个连接只创建一次
+     */
+    private static final Map<RedisCodec<String, ?>, RedisClusterCommands<String, ?>> CODEC_COMMANDS = new ConcurrentHashMap<>();
+
+    /**
+     * codec -> 该codec连接上写入后失效客户端缓存的异步命令，每个连接只创建一次
+     */
+    private static final Map<RedisCodec<String, ?>, RedisClusterAsyncCommands<String, ?>> CODEC_ASYNC_COMMANDS = new ConcurrentHashMap<>();
+
+    private static final RedisAsync ASYNC = new RedisAsync(RedisUtils::getAsyncCommands, null, RedisUtils::invalidateClientCache);
+
+    /**
+     * 命令统计，重新初始化后继续累计
+     */
+    private static final RedisCommandMetrics COMMAND_METRICS = new RedisCommandMetrics();
+
+    /**
+     * 异步命令，与同步方法共用连接，命令结果通过CompletableFuture返回，不阻塞调用线程
+     *
+     * @return async
+     */
+    public static RedisAsync async() {
+        return ASYNC;
+    }
+
     // region 字符串
 
     /**
@@ -53,6 +218,7 @@ public final class RedisUtils {
      */
     public static void set(String key, String value) {
         getCommands().set(key, value);
+        invalidateClientCache(key);
     }
 
     /**
@@ -62,6 +228,10 @@ public final class RedisUtils {
      * @return value
      */
     public static String get(String key) {
+        RedisClientCache cache = clientCache;
+        if (cache != null) {
+            return cache.get(key);
+        }
         return getCommands().get(key);
     }
 
@@ -74,6 +244,7 @@ public final class RedisUtils {
      */
     public static void setEx(String key, String value, Long seconds) {
         getCommands().setex(key, seconds, value);
+        invalidateClientCache(key);
     }
 
     /**
@@ -85,6 +256,7 @@ public final class RedisUtils {
      */
     public static void pSetEx(String key, String value, Long milliseconds) {
         getCommands().psetex(key, milliseconds, value);
+        invalidateClientCache(key);
     }
 
     /**
@@ -95,7 +267,9 @@ public final class RedisUtils {
      * @return set成功true，失败(key已存在)false
      */
     public static Boolean setNx(String key, String value) {
-        return getCommands().setnx(key, value);
+        Boolean result = getCommands().setnx(key, value);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
@@ -106,7 +280,83 @@ public final class RedisUtils {
      * @return set成功true，失败(key已存在)false
      */
     public static Boolean setNxWithExpire(String key, String value, Duration timeout) {
-        return OK.equals(getCommands().set(key, value, SetArgs.Builder.nx().ex(timeout)));
+        boolean isSet = OK.equals(getCommands().set(key, value, SetArgs.Builder.nx().px(timeout.toMillis())));
+        invalidateClientCache(key);
+        return isSet;
+    }
+
+    /**
+     * mGet
+     *
+     * @param keys keys
+     * @return key->value map，不存在的key不包含在内
+     */
+    public static Map<String, String> mGet(String... keys) {
+        Map<String, String> map = new HashMap<>(keys.length * 2);
+        for (KeyValue<String, String> keyValue : getCommands().mget(keys)) {
+            if (keyValue.hasValue()) {
+                map.put(keyValue.getKey(), keyValue.getValue());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * mSet
+     *
+     * @param map key->value map
+     */
+    public static void mSet(Map<String, String> map) {
+        getCommands().mset(map);
+        invalidateClientCache(map.keySet());
+    }
+
+    /**
+     * 批量pSetEx，命令在同一连接上连续发送后统一等待结果，超时抛出RedisCommandTimeoutException
+     *
+     * @param map          key->value map
+     * @param milliseconds 过期时间(毫秒)
+     */
+    public static void mPSetEx(Map<String, String> map, Long milliseconds) {
+        RedisClusterAsyncCommands<String, String> async = getAsyncCommands();
+        RedisFuture<?>[] futures = new RedisFuture<?>[map.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            futures[i++] = async.psetex(entry.getKey(), milliseconds, entry.getValue());
+        }
+        try {
+            if (!LettuceFutures.awaitAll(connection.getTimeout(), futures)) {
+                throw new RedisCommandTimeoutException("mPSetEx timed out after " + connection.getTimeout());
+            }
+        } finally {
+            // 超时或失败时部分命令可能已执行
+            invalidateClientCache(map.keySet());
+        }
+    }
+
+    /**
+     * setBit
+     *
+     * @param key    key
+     * @param offset 位偏移
+     * @param value  0或1
+     * @return 原值
+     */
+    public static Long setBit(String key, long offset, int value) {
+        Long result = getCommands().setbit(key, offset, value);
+        invalidateClientCache(key);
+        return result;
+    }
+
+    /**
+     * getBit
+     *
+     * @param key    key
+     * @param offset 位偏移
+     * @return 0或1
+     */
+    public static Long getBit(String key, long offset) {
+        return getCommands().getbit(key, offset);
     }
 
     // endregion
@@ -177,6 +427,39 @@ public final class RedisUtils {
         return getCommands().rpop(key, count);
     }
 
+    /**
+     * lMove，从source头部弹出并追加到destination尾部(需Redis 6.2+)
+     *
+     * @param source      source
+     * @param destination destination
+     * @return value，source为空时为null
+     */
+    public static String lMove(String source, String destination) {
+        return getCommands().lmove(source, destination, LMoveArgs.Builder.leftRight());
+    }
+
+    /**
+     * lRem
+     *
+     * @param key   key
+     * @param count 大于0从头部、小于0从尾部删除count个，等于0删除全部
+     * @param value value
+     * @return 删除个数
+     */
+    public static Long lRem(String key, long count, String value) {
+        return getCommands().lrem(key, count, value);
+    }
+
+    /**
+     * lLen
+     *
+     * @param key key
+     * @return length
+     */
+    public static Long lLen(String key) {
+        return getCommands().llen(key);
+    }
+
     //endregion
 
     //region 集合
@@ -188,17 +471,17 @@ public final class RedisUtils {
      * @param members members
      * @return count
      */
-    public Long sAdd(String key, String... members) {
+    public static Long sAdd(String key, String... members) {
         return getCommands().sadd(key, members);
     }
 
     /**
-     * sMembers
+     * sMembers，成员较多时使用{@link #sScan}分页遍历
      *
      * @param key key
      * @return members
      */
-    public Set<String> sMembers(String key) {
+    public static Set<String> sMembers(String key) {
         return getCommands().smembers(key);
     }
 
@@ -290,6 +573,7 @@ public final class RedisUtils {
      */
     public static void hSet(String key, String field, String value) {
         getCommands().hset(key, field, value);
+        invalidateClientCache(key);
     }
 
     /**
@@ -300,7 +584,9 @@ public final class RedisUtils {
      * @return count
      */
     public static Long hSet(String key, Map<String, String> map) {
-        return getCommands().hset(key, map);
+        Long result = getCommands().hset(key, map);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
@@ -311,11 +597,15 @@ public final class RedisUtils {
      * @return value
      */
     public static String hGet(String key, String field) {
+        RedisClientCache cache = clientCache;
+        if (cache != null) {
+            return cache.hGet(key, field);
+        }
         return getCommands().hget(key, field);
     }
 
     /**
-     * hGetAll
+     * hGetAll，field较多时使用{@link #hScan}分页遍历
      *
      * @param key key
      * @return map
@@ -332,7 +622,9 @@ public final class RedisUtils {
      * @return count
      */
     public static Long hDel(String key, String... fields) {
-        return getCommands().hdel(key, fields);
+        Long result = getCommands().hdel(key, fields);
+        invalidateClientCache(key);
+        return result;
     }
 
     //endregion
@@ -346,7 +638,9 @@ public final class RedisUtils {
      * @return value
      */
     public static Long incr(String key) {
-        return getCommands().incr(key);
+        Long result = getCommands().incr(key);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
@@ -357,7 +651,9 @@ public final class RedisUtils {
      * @return value
      */
     public static Long incr(String key, Long amount) {
-        return getCommands().incrby(key, amount);
+        Long result = getCommands().incrby(key, amount);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
@@ -367,7 +663,9 @@ public final class RedisUtils {
      * @return value
      */
     public static Long decr(String key) {
-        return getCommands().decr(key);
+        Long result = getCommands().decr(key);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
@@ -378,11 +676,13 @@ public final class RedisUtils {
      * @return value
      */
     public static Long decr(String key, Long amount) {
-        return getCommands().decrby(key, amount);
+        Long result = getCommands().decrby(key, amount);
+        invalidateClientCache(key);
+        return result;
     }
 
     /**
-     * 执行lua脚本
+     * 执行lua脚本，通过EVALSHA执行，服务端未缓存时自动改用EVAL，脚本按内容缓存且有上限，固定脚本应使用RedisScript常量
      *
      * @param luaScript lua脚本
      * @param keys      keys
@@ -391,19 +691,47 @@ public final class RedisUtils {
      * @return 结果
      */
     public static <T> T eval(String luaScript, String[] keys, String[] args, Class<T> clazz) {
+        return eval(RedisScript.cached(luaScript), keys, args, clazz);
+    }
 
-        ScriptOutputType scriptOutputType;
-        if (Integer.class.equals(clazz) || Long.class.equals(clazz)) {
-            scriptOutputType = ScriptOutputType.INTEGER;
-        } else if (Boolean.class.equals(clazz)) {
-            scriptOutputType = ScriptOutputType.BOOLEAN;
-        } else if (String.class.equals(clazz)) {
-            scriptOutputType = ScriptOutputType.VALUE;
-        } else {
-            throw new UnsupportedOperationException("");
+    /**
+     * 执行lua脚本，通过EVALSHA执行，服务端未缓存时自动改用EVAL
+     *
+     * @param script lua脚本
+     * @param keys   keys
+     * @param args   args
+     * @param clazz  返回值类型
+     * @return 结果
+     */
+    public static <T> T eval(RedisScript script, String[] keys, String[] args, Class<T> clazz) {
+        return eval(script, keys, args, ScriptOutputTypes.of(clazz));
+    }
+
+    /**
+     * 执行lua脚本，通过EVALSHA执行，服务端未缓存时自动改用EVAL
+     *
+     * @param script     lua脚本
+     * @param keys       keys
+     * @param args       args
+     * @param outputType 返回值类型，MULTI返回List，STATUS返回状态字符串
+     * @return 结果
+     */
+    public static <T> T eval(RedisScript script, String[] keys, String[] args, ScriptOutputType outputType) {
+        try {
+            return script.eval(getCommands(), outputType, keys, args);
+        } finally {
+            invalidateClientCache(keys);
         }
+    }
 
-        return getCommands().eval(luaScript, scriptOutputType, keys, args);
+    /**
+     * 预加载lua脚本(SCRIPT LOAD)，集群模式下加载到所有主节点
+     *
+     * @param script lua脚本
+     * @return sha1
+     */
+    public static String scriptLoad(RedisScript script) {
+        return getCommands().scriptLoad(script.getSource());
     }
     //endregion
 
@@ -416,7 +744,9 @@ public final class RedisUtils {
      * @return count
      */
     public static Long del(String... keys) {
-        return getCommands().del(keys);
+        Long result = getCommands().del(keys);
+        invalidateClientCache(keys);
+        return result;
     }
 
     /**
@@ -426,7 +756,9 @@ public final class RedisUtils {
      * @return count
      */
     public static Long unlink(String... keys) {
-        return getCommands().unlink(keys);
+        Long result = getCommands().unlink(keys);
+        invalidateClientCache(keys);
+        return result;
     }
 
     /**
@@ -451,6 +783,563 @@ public final class RedisUtils {
 
     //endregion
 
+    //region 流
+
+    /**
+     * xAdd
+     *
+     * @param key  key
+     * @param body 消息内容
+     * @return 消息id
+     */
+    public static String xAdd(String key, Map<String, String> body) {
+        return getCommands().xadd(key, body);
+    }
+
+    /**
+     * xAdd，写入时按近似长度(MAXLEN ~)裁剪旧消息，裁剪以整个节点为单位，实际长度可能略大于maxLen
+     *
+     * @param key    key
+     * @param body   消息内容
+     * @param maxLen 最大长度
+     * @return 消息id
+     */
+    public static String xAdd(String key, Map<String, String> body, long maxLen) {
+        return getCommands().xadd(key, new XAddArgs().maxlen(maxLen).approximateTrimming(), body);
+    }
+
+    /**
+     * 创建消费组，从创建后的新消息开始消费，流不存在时一并创建
+     *
+     * @param key   key
+     * @param group 消费组
+     * @return 创建成功true，消费组已存在false
+     */
+    public static boolean xGroupCreate(String key, String group) {
+        try {
+            getCommands().xgroupCreate(XReadArgs.StreamOffset.latest(key), group, XGroupCreateArgs.Builder.mkstream());
+            return true;
+        } catch (RedisCommandExecutionException ex) {
+            if (ex.getMessage() != null && ex.getMessage().startsWith("BUSYGROUP")) {
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * xReadGroup，读取未分配给任何消费者的新消息，读取后进入该消费者的待确认列表；
+     * block大于0时在独占连接上阻塞等待
+     *
+     * @param key      key
+     * @param group    消费组
+     * @param consumer 消费者
+     * @param count    最多读取条数
+     * @param block    无消息时最长等待时间，为null或0时不等待
+     * @return 消息，无消息为空列表
+     */
+    public static List<StreamMessage<String, String>> xReadGroup(String key, String group, String consumer, int count, Duration block) {
+        return xReadGroup(key, group, consumer, ">", count, block);
+    }
+
+    /**
+     * xReadGroup，startId为"&gt;"时读取新消息；为"0"或消息id时读取该消费者待确认列表中该id之后的消息，不阻塞，
+     * 用于重启后继续处理自己未确认的消息
+     *
+     * @param key      key
+     * @param group    消费组
+     * @param consumer 消费者
+     * @param startId  起始id
+     * @param count    最多读取条数
+     * @param block    无消息时最长等待时间，为null或0时不等待
+     * @return 消息，无消息为空列表；读取待确认消息时已被删除的消息body为null
+     */
+    public static List<StreamMessage<String, String>> xReadGroup(String key, String group, String consumer, String startId,
+                                                                 int count, Duration block) {
+        io.lettuce.core.Consumer<String> from = io.lettuce.core.Consumer.from(group, consumer);
+        // 泛型可变参数，显式创建数组
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        XReadArgs.StreamOffset<String>[] offsets = new XReadArgs.StreamOffset[]{XReadArgs.StreamOffset.from(key, startId)};
+        if (block == null || block.isZero()) {
+            return getCommands().xreadgroup(from, XReadArgs.Builder.count(count), offsets);
+        }
+        return executeBlocking(block, commands -> commands.xreadgroup(from, XReadArgs.Builder.count(count).block(block), offsets));
+    }
+
+    /**
+     * xAck，多条消息一次确认
+     *
+     * @param key   key
+     * @param group 消费组
+     * @param ids   消息id
+     * @return 确认条数
+     */
+    public static Long xAck(String key, String group, String... ids) {
+        return getCommands().xack(key, group, ids);
+    }
+
+    /**
+     * xAutoClaim，将空闲超过minIdle的待确认消息转移给指定消费者(需Redis 6.2+)，用于接管宕机消费者的消息
+     *
+     * @param key      key
+     * @param group    消费组
+     * @param consumer 接管的消费者
+     * @param minIdle  最小空闲时间
+     * @param startId  起始id，首次为"0-0"，之后使用返回的游标
+     * @param count    最多转移条数
+     * @return 转移的消息及下次起始id，id为"0-0"时已遍历完
+     */
+    public static ClaimedMessages<String, String> xAutoClaim(String key, String group, String consumer, Duration minIdle,
+                                                           String startId, int count) {
+        return getCommands().xautoclaim(key, new XAutoClaimArgs<String>()
+                .consumer(io.lettuce.core.Consumer.from(group, consumer))
+                .minIdleTime(minIdle)
+                .startId(startId)
+                .count(count));
+    }
+
+    /**
+     * xPending，查询消费者待确认列表中id在[startId, endId]内的消息及其投递次数
+     *
+     * @param key      key
+     * @param group    消费组
+     * @param consumer 消费者
+     * @param startId  起始id(含)
+     * @param endId    结束id(含)
+     * @param count    最多返回条数
+     * @return 待确认消息
+     */
+    public static List<PendingMessage> xPending(String key, String group, String consumer, String startId, String endId, long count) {
+        return getCommands().xpending(key, io.lettuce.core.Consumer.from(group, consumer),
+                Range.create(startId, endId), Limit.from(count));
+    }
+
+    //endregion
+
+    //region 游标遍历
+
+    /**
+     * 按游标遍历key(SCAN)，流被消费时才按页获取，内存占用与页大小相关；
+     * 遍历期间被修改的key可能遗漏或重复返回，集群模式下依次遍历各主节点
+     *
+     * @param pattern  匹配模式，如"user:*"
+     * @param pageSize 每页数量(COUNT)
+     * @return keys
+     */
+    public static Stream<String> scan(String pattern, int pageSize) {
+        return ScanIterator.scan(getCommands(), ScanArgs.Builder.limit(pageSize).match(pattern)).stream();
+    }
+
+    /**
+     * 按游标遍历哈希(HSCAN)，用于field较多的哈希，替代hGetAll
+     *
+     * @param key      key
+     * @param pageSize 每页数量(COUNT)
+     * @return field及value
+     */
+    public static Stream<KeyValue<String, String>> hScan(String key, int pageSize) {
+        return ScanIterator.hscan(getCommands(), key, ScanArgs.Builder.limit(pageSize)).stream();
+    }
+
+    /**
+     * 按游标遍历集合(SSCAN)，用于成员较多的集合，替代sMembers；遍历期间被修改的成员可能重复返回
+     *
+     * @param key      key
+     * @param pageSize 每页数量(COUNT)
+     * @return members
+     */
+    public static Stream<String> sScan(String key, int pageSize) {
+        return ScanIterator.sscan(getCommands(), key, ScanArgs.Builder.limit(pageSize)).stream();
+    }
+
+    /**
+     * 按游标遍历有序集合(ZSCAN)，用于成员较多的有序集合，返回顺序不保证按score排序
+     *
+     * @param key      key
+     * @param pageSize 每页数量(COUNT)
+     * @return member及score
+     */
+    public static Stream<ScoredValue<String>> zScan(String key, int pageSize) {
+        return ScanIterator.zscan(getCommands(), key, ScanArgs.Builder.limit(pageSize)).stream();
+    }
+
+    //endregion
+
+    //region 发布订阅
+
+    /**
+     * publish
+     *
+     * @param channel channel
+     * @param message message
+     * @return 接收到消息的客户端数量
+     */
+    public static Long publish(String channel, String message) {
+        return getCommands().publish(channel, message);
+    }
+
+    /**
+     * 订阅频道，未初始化时先登记，初始化后自动订阅；断线重连后由Lettuce自动恢复订阅
+     *
+     * @param channel  channel
+     * @param listener 消息处理
+     */
+    public static synchronized void subscribe(String channel, Consumer<String> listener) {
+        List<Consumer<String>> listeners = SUBSCRIBERS.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>());
+        boolean isNewChannel = listeners.isEmpty();
+        listeners.add(listener);
+        if (isInit && isNewChannel) {
+            getPubSubConnection().sync().subscribe(channel);
+        }
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @param channel  channel
+     * @param listener 消息处理
+     */
+    public static synchronized void unsubscribe(String channel, Consumer<String> listener) {
+        List<Consumer<String>> listeners = SUBSCRIBERS.get(channel);
+        if (listeners == null || !listeners.remove(listener) || !listeners.isEmpty()) {
+            return;
+        }
+        SUBSCRIBERS.remove(channel);
+        if (isInit && pubSubConnection != null) {
+            pubSubConnection.sync().unsubscribe(channel);
+        }
+    }
+
+    //endregion
+
+    //region 管道
+
+    /**
+     * 管道执行：命令先缓存在客户端，consumer执行完后一次写出并等待全部结果
+     * <p>
+     * 使用关闭自动flush的专用连接，多个线程可同时执行，各自flush时可能一并写出其他线程已发送的命令，不影响各自的结果；
+     * consumer中应只发送命令，不要等待单个命令的结果
+     * <p>
+     * 单个命令失败不影响其他命令，结果中对应位置为该命令的异常；超时未全部返回时抛出RedisCommandTimeoutException，此时部分命令可能已执行
+     *
+     * @param consumer 发送命令
+     * @return 按发送顺序的命令结果，失败的命令为其异常
+     */
+    public static List<Object> pipeline(Consumer<RedisAsync> consumer) {
+        StatefulConnection<String, String> pipeline;
+        synchronized (PIPELINE_LOCK) {
+            pipeline = getPipelineConnection();
+        }
+        RedisClusterAsyncCommands<String, String> pipelineCommands = RedisConnections.async(pipeline);
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        try {
+            consumer.accept(new RedisAsync(() -> pipelineCommands, futures::add, RedisUtils::invalidateClientCache));
+        } finally {
+            pipeline.flushCommands();
+        }
+        long deadline = System.nanoTime() + pipeline.getTimeout().toNanos();
+        List<Object> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<?> future : futures) {
+            try {
+                results.add(future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException ex) {
+                results.add(ex.getCause());
+            } catch (TimeoutException ex) {
+                throw new RedisCommandTimeoutException("pipeline timed out after " + pipeline.getTimeout());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RedisCommandInterruptedException(ex);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 创建写入合并器，单条写入在后台按批次大小或等待时间合并为一次管道写入，使用完需close
+     *
+     * @param maxBatchSize 每批最大命令数
+     * @param maxDelay     首条命令入队后最长等待时间
+     * @return batcher
+     */
+    public static RedisWriteBatcher newWriteBatcher(int maxBatchSize, Duration maxDelay) {
+        return new RedisWriteBatcher(RedisUtils::pipeline, maxBatchSize, maxDelay, maxBatchSize * 64);
+    }
+
+    /**
+     * 创建计数合并器，incr先累加在本地，后台按间隔或待写key数合并为一次管道INCRBY，使用完需close
+     *
+     * @param flushInterval 刷新间隔
+     * @param maxKeys       待写key数达到该值时提前刷新
+     * @return aggregator
+     */
+    public static RedisCounterAggregator newCounterAggregator(Duration flushInterval, int maxKeys) {
+        synchronized (COUNTER_AGGREGATORS) {
+            if (counterShutdownHook == null) {
+                counterShutdownHook = new Thread(RedisUtils::closeCounterAggregators, "redis-counter-aggregator-shutdown");
+                Runtime.getRuntime().addShutdownHook(counterShutdownHook);
+            }
+        }
+        RedisCounterAggregator aggregator =
+                new RedisCounterAggregator(RedisUtils::pipeline, flushInterval, maxKeys, COUNTER_AGGREGATORS::remove);
+        COUNTER_AGGREGATORS.add(aggregator);
+        return aggregator;
+    }
+
+    /**
+     * 关闭计数合并器并写完剩余增量，关闭连接前与JVM退出时执行
+     */
+    private static void closeCounterAggregators() {
+        for (RedisCounterAggregator aggregator : COUNTER_AGGREGATORS) {
+            try {
+                aggregator.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    //endregion
+
+    //region 独占连接
+
+    /**
+     * 从连接池借出独占连接执行，适用于耗时较长的lua脚本等会阻塞连接的操作，执行完成后归还
+     *
+     * @param callback 回调
+     * @return 回调结果
+     */
+    public static <T> T execute(Function<RedisClusterCommands<String, String>, T> callback) {
+        return getConnectionPool().execute(pooled -> callback.apply(RedisConnections.sync(pooled)));
+    }
+
+    /**
+     * 在独占连接上执行事务，consumer中的命令在MULTI/EXEC之间发送，返回值在事务提交前均为null；集群模式不支持
+     *
+     * @param consumer  发送命令
+     * @param watchKeys 需要WATCH的key，任一key在事务提交前被修改时事务放弃
+     * @return 事务结果，wasDiscarded()为true表示事务被放弃
+     */
+    public static TransactionResult multi(Consumer<RedisCommands<String, String>> consumer, String... watchKeys) {
+        return getConnectionPool().execute(pooled -> {
+            if (RedisConnections.isCluster(pooled)) {
+                throw new UnsupportedOperationException("MULTI/EXEC is not supported in cluster mode");
+            }
+            RedisCommands<String, String> transaction = ((StatefulRedisConnection<String, String>) pooled).sync();
+            boolean isClean = false;
+            try {
+                if (watchKeys.length > 0) {
+                    transaction.watch(watchKeys);
+                }
+                transaction.multi();
+                try {
+                    consumer.accept(transaction);
+                } catch (RuntimeException | Error ex) {
+                    // DISCARD同时取消WATCH
+                    try {
+                        transaction.discard();
+                        isClean = true;
+                    } catch (RuntimeException discardEx) {
+                        ex.addSuppressed(discardEx);
+                    }
+                    throw ex;
+                }
+                TransactionResult result = transaction.exec();
+                isClean = true;
+                return result;
+            } finally {
+                if (!isClean) {
+                    // 连接可能仍处于MULTI/WATCH状态，关闭后归还，连接池借出前校验时丢弃
+                    pooled.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * bLPop，在独占连接上阻塞等待
+     *
+     * @param timeoutSeconds 最长等待时间(秒)，需大于0
+     * @param keys           keys
+     * @return key及value，超时为null
+     */
+    public static KeyValue<String, String> bLPop(long timeoutSeconds, String... keys) {
+        return executeBlocking(timeoutSeconds, commands -> commands.blpop(timeoutSeconds, keys));
+    }
+
+    /**
+     * bRPop，在独占连接上阻塞等待
+     *
+     * @param timeoutSeconds 最长等待时间(秒)，需大于0
+     * @param keys           keys
+     * @return key及value，超时为null
+     */
+    public static KeyValue<String, String> bRPop(long timeoutSeconds, String... keys) {
+        return executeBlocking(timeoutSeconds, commands -> commands.brpop(timeoutSeconds, keys));
+    }
+
+    /**
+     * bLMove，在独占连接上阻塞等待，从source头部弹出并追加到destination尾部(需Redis 6.2+)
+     *
+     * @param timeoutSeconds 最长等待时间(秒)，需大于0
+     * @param source         source
+     * @param destination    destination
+     * @return value，超时为null
+     */
+    public static String bLMove(long timeoutSeconds, String source, String destination) {
+        return executeBlocking(timeoutSeconds, commands -> commands.blmove(source, destination, LMoveArgs.Builder.leftRight(), timeoutSeconds));
+    }
+
+    /**
+     * 获取连接池统计
+     *
+     * @return 统计快照
+     */
+    public static RedisPoolStats poolStats() {
+        return getConnectionPool().stats();
+    }
+
+    /**
+     * 获取命令统计，包含各命令类型的调用次数、失败次数、耗时分位数及未完成命令数，
+     * 同时注册为JMX(com.cl.common:type=RedisCommandMetrics)；可通过addListener接入其他监控系统
+     *
+     * @return 命令统计
+     */
+    public static RedisCommandMetrics commandMetrics() {
+        return COMMAND_METRICS;
+    }
+
+    /**
+     * 执行阻塞命令，命令超时时间临时延长阻塞时间，避免服务端阻塞期间客户端先超时
+     *
+     * @param timeoutSeconds 阻塞时间(秒)
+     * @param callback       回调
+     * @return 回调结果
+     */
+    private static <T> T executeBlocking(long timeoutSeconds, Function<RedisClusterCommands<String, String>, T> callback) {
+        if (timeoutSeconds <= 0) {
+            throw new IllegalArgumentException("timeoutSeconds must be greater than 0");
+        }
+        return executeBlocking(Duration.ofSeconds(timeoutSeconds), callback);
+    }
+
+    /**
+     * 执行阻塞命令，命令超时时间临时延长阻塞时间，避免服务端阻塞期间客户端先超时
+     *
+     * @param block    阻塞时间
+     * @param callback 回调
+     * @return 回调结果
+     */
+    private static <T> T executeBlocking(Duration block, Function<RedisClusterCommands<String, String>, T> callback) {
+        return getConnectionPool().execute(pooled -> {
+            Duration timeout = pooled.getTimeout();
+            pooled.setTimeout(timeout.plus(block));
+            try {
+                return callback.apply(RedisConnections.sync(pooled));
+            } finally {
+                pooled.setTimeout(timeout);
+            }
+        });
+    }
+
+    //endregion
+
+    //region 自定义编解码
+
+    /**
+     * 获取使用指定codec的同步命令，用于读写byte[]、对象或压缩值(见{@link RedisCodecs})；
+     * 每个codec实例首次使用时创建一个共享连接，应复用codec实例而非每次新建
+     *
+     * @param codec codec，如RedisCodecs.bytes()
+     * @return commands
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> RedisClusterCommands<String, V> commands(RedisCodec<String, V> codec) {
+        StatefulConnection<String, V> codecConnection = getCodecConnection(codec);
+        return (RedisClusterCommands<String, V>) CODEC_COMMANDS.computeIfAbsent(codec, c -> RedisWriteInvalidation.wrap(
+                RedisClusterCommands.class, RedisConnections.sync(codecConnection), RedisUtils::invalidateClientCache));
+    }
+
+    /**
+     * 获取使用指定codec的异步命令，连接与{@link #commands(RedisCodec)}共用
+     *
+     * @param codec codec，如RedisCodecs.bytes()
+     * @return asyncCommands
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> RedisClusterAsyncCommands<String, V> asyncCommands(RedisCodec<String, V> codec) {
+        StatefulConnection<String, V> codecConnection = getCodecConnection(codec);
+        return (RedisClusterAsyncCommands<String, V>) CODEC_ASYNC_COMMANDS.computeIfAbsent(codec, c -> RedisWriteInvalidation.wrap(
+                RedisClusterAsyncCommands.class, RedisConnections.async(codecConnection), RedisUtils::invalidateClientCache));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> StatefulConnection<String, V> getCodecConnection(RedisCodec<String, V> codec) {
+        if (!isInit) {
+            throw new RuntimeException("RedisUtils is not initialized");
+        }
+        return (StatefulConnection<String, V>) CODEC_CONNECTIONS.computeIfAbsent(codec, RedisUtils::connect);
+    }
+
+    //endregion
+
+    //region 客户端缓存
+
+    /**
+     * 开启客户端缓存(需Redis 6+，仅支持单机模式)：get/hGet的结果缓存在本地，key被修改时由服务端推送失效消息；
+     * 通过RedisUtils写入(含async、pipeline与自定义codec命令)的key立即失效本地缓存，其他客户端写入的key在收到推送后失效
+     *
+     * @param maximumSize 最大缓存字符串key个数，哈希按field个数计算
+     */
+    public static synchronized void enableClientCache(long maximumSize) {
+        disableClientCache();
+        StatefulConnection<String, String> trackingConnection = connect();
+        if (!(trackingConnection instanceof StatefulRedisConnection) || trackingConnection instanceof StatefulRedisMasterReplicaConnection) {
+            trackingConnection.close();
+            throw new UnsupportedOperationException("Client side caching is only supported in standalone mode");
+        }
+        clientCache = new RedisClientCache(redisClient, (StatefulRedisConnection<String, String>) trackingConnection, maximumSize);
+    }
+
+    /**
+     * 关闭客户端缓存
+     */
+    public static synchronized void disableClientCache() {
+        RedisClientCache cache = clientCache;
+        if (cache != null) {
+            clientCache = null;
+            cache.close();
+        }
+    }
+
+    /**
+     * 获取客户端缓存，未开启时为null，可用于查看命中统计
+     *
+     * @return clientCache
+     */
+    public static RedisClientCache getClientCache() {
+        return clientCache;
+    }
+
+    private static void invalidateClientCache(String... keys) {
+        RedisClientCache cache = clientCache;
+        if (cache != null) {
+            for (String key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private static void invalidateClientCache(Collection<String> keys) {
+        RedisClientCache cache = clientCache;
+        if (cache != null) {
+            for (String key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    //endregion
+
     //region 初始化连接
 
     /**
@@ -503,6 +1392,20 @@ public final class RedisUtils {
      * @param timeout  超时时间
      */
     public static void init(String host, Integer port, Integer dbIndex, CharSequence password, Duration timeout) {
+        init(host, port, dbIndex, password, timeout, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * 初始化
+     *
+     * @param host     地址
+     * @param port     端口
+     * @param dbIndex  db
+     * @param password 密码
+     * @param timeout  超时时间
+     * @param poolSize 独占连接池最大连接数
+     */
+    public static void init(String host, Integer port, Integer dbIndex, CharSequence password, Duration timeout, Integer poolSize) {
         RedisURI redisUri = RedisURI.builder()
                 .withHost((host == null || host.length() == 0) ? DEFAULT_HOST : host)
                 .withPort(port == null ? DEFAULT_PORT : port)
@@ -518,9 +1421,188 @@ public final class RedisUtils {
             redisUri.setTimeout(DEFAULT_TIMEOUT);
         }
 
-        redisClient = RedisClient.create(redisUri);
-        connection = redisClient.connect();
+        RedisClient client = RedisClient.create(redisUri);
+        init(client, new ConnectionFactory() {
+            @Override
+            public <V> CompletionStage<StatefulConnection<String, V>> connect(RedisCodec<String, V> codec) {
+                return client.connectAsync(codec, redisUri).thenApply(c -> c);
+            }
+        }, client::connectPubSub, null, poolSize);
+    }
+
+    /**
+     * 初始化哨兵模式
+     *
+     * @param masterId  主节点名称
+     * @param sentinels 哨兵地址，格式为host:port
+     * @param password  密码
+     * @param readFrom  读取节点选择，如ReadFrom.REPLICA_PREFERRED，为null时读写均在主节点
+     */
+    public static void initSentinel(String masterId, List<String> sentinels, CharSequence password, ReadFrom readFrom) {
+        initSentinel(masterId, sentinels, DEFAULT_DB_INDEX, password, DEFAULT_TIMEOUT, readFrom, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * 初始化哨兵模式，写入发往主节点，读取按readFrom选择节点，主从切换后自动重连新主节点
+     *
+     * @param masterId  主节点名称
+     * @param sentinels 哨兵地址，格式为host:port
+     * @param dbIndex   db
+     * @param password  密码
+     * @param timeout   超时时间
+     * @param readFrom  读取节点选择，如ReadFrom.REPLICA_PREFERRED，为null时读写均在主节点
+     * @param poolSize  独占连接池最大连接数
+     */
+    public static void initSentinel(String masterId, List<String> sentinels, Integer dbIndex, CharSequence password,
+                                    Duration timeout, ReadFrom readFrom, Integer poolSize) {
+        RedisURI.Builder builder = null;
+        for (String sentinel : sentinels) {
+            if (builder == null) {
+                builder = RedisURI.Builder.sentinel(hostOf(sentinel), portOf(sentinel), masterId);
+            } else {
+                builder.withSentinel(hostOf(sentinel), portOf(sentinel));
+            }
+        }
+        if (builder == null) {
+            throw new IllegalArgumentException("sentinels must not be empty");
+        }
+        builder.withDatabase(dbIndex == null ? DEFAULT_DB_INDEX : dbIndex)
+                .withTimeout(timeout == null ? DEFAULT_TIMEOUT : timeout);
+        if (password != null && password.length() > 0) {
+            builder.withPassword(password);
+        }
+        RedisURI redisUri = builder.build();
+
+        RedisClient client = RedisClient.create();
+        init(client, new ConnectionFactory() {
+            @Override
+            public <V> CompletionStage<StatefulConnection<String, V>> connect(RedisCodec<String, V> codec) {
+                return MasterReplica.connectAsync(client, codec, redisUri).thenApply(c -> c);
+            }
+        }, () -> client.connectPubSub(redisUri), readFrom, poolSize);
+    }
+
+    /**
+     * 初始化集群模式
+     *
+     * @param nodes    集群节点地址(任意部分节点即可)，格式为host:port
+     * @param password 密码
+     * @param readFrom 读取节点选择，如ReadFrom.REPLICA_PREFERRED，为null时读写均在主节点
+     */
+    public static void initCluster(List<String> nodes, CharSequence password, ReadFrom readFrom) {
+        initCluster(nodes, password, DEFAULT_TIMEOUT, readFrom, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * 初始化集群模式，命令按key路由到对应分片，写入发往主节点，读取按readFrom选择节点；
+     * 多key命令(mGet/mSet/del等)由Lettuce按分片拆分，lua脚本的keys需位于同一分片，不支持事务
+     *
+     * @param nodes    集群节点地址(任意部分节点即可)，格式为host:port
+     * @param password 密码
+     * @param timeout  超时时间
+     * @param readFrom 读取节点选择，如ReadFrom.REPLICA_PREFERRED，为null时读写均在主节点
+     * @param poolSize 独占连接池最大连接数
+     */
+    public static void initCluster(List<String> nodes, CharSequence password, Duration timeout, ReadFrom readFrom, Integer poolSize) {
+        List<RedisURI> redisUris = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            RedisURI redisUri = RedisURI.create(hostOf(node), portOf(node));
+            redisUri.setTimeout(timeout == null ? DEFAULT_TIMEOUT : timeout);
+            if (password != null && password.length() > 0) {
+                redisUri.setPassword(password);
+            }
+            redisUris.add(redisUri);
+        }
+
+        RedisClusterClient client = RedisClusterClient.create(redisUris);
+        client.setOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                        .enableAllAdaptiveRefreshTriggers()
+                        .build())
+                .build());
+        init(client, new ConnectionFactory() {
+            @Override
+            public <V> CompletionStage<StatefulConnection<String, V>> connect(RedisCodec<String, V> codec) {
+                return client.connectAsync(codec).thenApply(c -> c);
+            }
+        }, client::connectPubSub, readFrom, poolSize);
+    }
+
+    /**
+     * 初始化共享连接与独占连接池
+     *
+     * @param client                  客户端
+     * @param connectionFactory       创建连接
+     * @param pubSubConnectionFactory 创建发布订阅连接
+     * @param readFrom                读取节点选择
+     * @param poolSize                独占连接池最大连接数
+     */
+    private static void init(AbstractRedisClient client,
+                             ConnectionFactory connectionFactory,
+                             Supplier<StatefulRedisPubSubConnection<String, String>> pubSubConnectionFactory,
+                             ReadFrom readFrom, Integer poolSize) {
+        RedisUtils.redisClient = client;
+        RedisUtils.connectionFactory = connectionFactory;
+        RedisUtils.pubSubConnectionFactory = pubSubConnectionFactory;
+        RedisUtils.readFrom = readFrom;
+        client.addListener(COMMAND_METRICS);
+        connection = connect();
+        commands = RedisConnections.sync(connection);
+        asyncCommands = RedisConnections.async(connection);
+        connectionPool = new RedisConnectionPool(() -> connectionFactory.connect(StringCodec.UTF8), poolSize == null ? DEFAULT_POOL_SIZE : poolSize, connection.getTimeout());
+        registerMBean(POOL_STATS_OBJECT_NAME, new RedisPoolStatsBean(RedisUtils::poolStats));
+        registerMBean(COMMAND_METRICS_OBJECT_NAME, COMMAND_METRICS);
         isInit = true;
+
+        synchronized (RedisUtils.class) {
+            if (!SUBSCRIBERS.isEmpty()) {
+                getPubSubConnection().sync().subscribe(SUBSCRIBERS.keySet().toArray(new String[0]));
+            }
+        }
+    }
+
+    private static String hostOf(String address) {
+        return address.substring(0, address.lastIndexOf(':'));
+    }
+
+    private static int portOf(String address) {
+        return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+    }
+
+    /**
+     * 创建连接并设置读取节点选择
+     *
+     * @return connection
+     */
+    private static StatefulConnection<String, String> connect() {
+        return connect(StringCodec.UTF8);
+    }
+
+    /**
+     * 使用指定codec创建连接并设置读取节点选择
+     *
+     * @param codec codec
+     * @return connection
+     */
+    private static <V> StatefulConnection<String, V> connect(RedisCodec<String, V> codec) {
+        StatefulConnection<String, V> newConnection;
+        try {
+            newConnection = connectionFactory.connect(codec).toCompletableFuture().join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+        if (readFrom != null) {
+            RedisConnections.setReadFrom(newConnection, readFrom);
+        }
+        return newConnection;
+    }
+
+    /**
+     * 按codec创建连接，单机/哨兵/集群各自实现
+     */
+    private interface ConnectionFactory {
+
+        <V> CompletionStage<StatefulConnection<String, V>> connect(RedisCodec<String, V> codec);
     }
 
     //endregion
@@ -530,25 +1612,165 @@ public final class RedisUtils {
      *
      * @return commands
      */
-    private static RedisCommands<String, String> getCommands() {
+    private static RedisClusterCommands<String, String> getCommands() {
         if (!isInit) {
             throw new RuntimeException("RedisUtils is not initialized");
         }
-        return connection.sync();
+        return commands;
     }
 
     /**
-     * 关闭连接
+     * 获取异步命令执行
+     *
+     * @return asyncCommands
+     */
+    private static RedisClusterAsyncCommands<String, String> getAsyncCommands() {
+        if (!isInit) {
+            throw new RuntimeException("RedisUtils is not initialized");
+        }
+        return asyncCommands;
+    }
+
+    /**
+     * 获取发布订阅连接，首次使用时创建
+     *
+     * @return pubSubConnection
+     */
+    private static synchronized StatefulRedisPubSubConnection<String, String> getPubSubConnection() {
+        if (pubSubConnection == null) {
+            pubSubConnection = pubSubConnectionFactory.get();
+            pubSubConnection.addListener(new RedisPubSubAdapter<String, String>() {
+                @Override
+                public void message(String channel, String message) {
+                    List<Consumer<String>> listeners = SUBSCRIBERS.get(channel);
+                    if (listeners == null) {
+                        return;
+                    }
+                    for (Consumer<String> listener : listeners) {
+                        try {
+                            listener.accept(message);
+                        } catch (Exception ex) {
+                            ex.printStackTrace();
+                        }
+                    }
+                }
+            });
+        }
+        return pubSubConnection;
+    }
+
+    /**
+     * 获取独占连接池
+     *
+     * @return connectionPool
+     */
+    private static RedisConnectionPool getConnectionPool() {
+        if (!isInit) {
+            throw new RuntimeException("RedisUtils is not initialized");
+        }
+        return connectionPool;
+    }
+
+    private static void registerMBean(String name, Object mBean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mBean, objectName);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void unregisterMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * 获取管道连接，首次使用时创建，需持有PIPELINE_LOCK
+     *
+     * @return pipelineConnection
+     */
+    private static StatefulConnection<String, String> getPipelineConnection() {
+        if (!isInit) {
+            throw new RuntimeException("RedisUtils is not initialized");
+        }
+        if (pipelineConnection == null) {
+            pipelineConnection = connect();
+            pipelineConnection.setAutoFlushCommands(false);
+        }
+        return pipelineConnection;
+    }
+
+    /**
+     * 关闭连接，先写完计数合并器的剩余增量
      */
     public static void close() {
 
+        closeCounterAggregators();
+        synchronized (COUNTER_AGGREGATORS) {
+            if (counterShutdownHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(counterShutdownHook);
+                } catch (IllegalStateException ex) {
+                    // JVM正在退出
+                }
+                counterShutdownHook = null;
+            }
+        }
         isInit = false;
+        disableClientCache();
+        synchronized (RedisUtils.class) {
+            if (pubSubConnection != null) {
+                try {
+                    pubSubConnection.close();
+                } catch (Exception ex) {
+                    //ignore
+                }
+                pubSubConnection = null;
+            }
+        }
+        synchronized (PIPELINE_LOCK) {
+            if (pipelineConnection != null) {
+                try {
+                    pipelineConnection.close();
+                } catch (Exception ex) {
+                    //ignore
+                }
+                pipelineConnection = null;
+            }
+        }
+        for (StatefulConnection<String, ?> codecConnection : CODEC_CONNECTIONS.values()) {
+            try {
+                codecConnection.close();
+            } catch (Exception ex) {
+                //ignore
+            }
+        }
+        CODEC_CONNECTIONS.clear();
+        CODEC_COMMANDS.clear();
+        CODEC_ASYNC_COMMANDS.clear();
+        unregisterMBean(POOL_STATS_OBJECT_NAME);
+        unregisterMBean(COMMAND_METRICS_OBJECT_NAME);
+        try {
+            connectionPool.close();
+        } catch (Exception ex) {
+            //ignore
+        }
         try {
             connection.close();
         } catch (Exception ex) {
             //ignore
         }
         try {
+            redisClient.removeListener(COMMAND_METRICS);
             redisClient.shutdown();
         } catch (Exception ex) {
             //ignore
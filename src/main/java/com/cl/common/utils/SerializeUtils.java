@@ -0,0 +1,146 @@
+package com.cl.common.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 序列化与压缩工具类，本地缓存与Redis的编码值共用同一格式
+ * <p>
+ * 压缩格式: 1字节标记(0未压缩/1压缩) + [压缩时4字节原始长度] + 数据
+ *
+ * @author: CarterCL
+ * @date: 2022/1/18 10:00
+ * @version: V1.0
+ */
+public final class SerializeUtils {
+
+    private static final byte FLAG_RAW = 0;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    /**
+     * Java序列化
+     *
+     * @param value value，需实现Serializable
+     * @return 序列化后的值
+     */
+    public static byte[] serialize(Object value) {
+        if (!(value instanceof Serializable)) {
+            throw new IllegalArgumentException("Value must be Serializable: " + value.getClass().getName());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Java反序列化
+     *
+     * @param bytes 序列化后的值
+     * @return value
+     */
+    public static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * 按阈值压缩，长度不小于阈值时使用deflate压缩，否则仅增加1字节标记
+     *
+     * @param bytes     原始值
+     * @param threshold 压缩阈值(字节)，Integer.MAX_VALUE为不压缩
+     * @return 压缩格式的值
+     */
+    public static byte[] pack(byte[] bytes, int threshold) {
+        if (bytes.length < threshold) {
+            byte[] packed = new byte[bytes.length + 1];
+            packed[0] = FLAG_RAW;
+            System.arraycopy(bytes, 0, packed, 1, bytes.length);
+            return packed;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 5);
+            out.write(FLAG_COMPRESSED);
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array(), 0, Integer.BYTES);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解压{@link #pack}的结果
+     *
+     * @param packed 压缩格式的值
+     * @return 原始值
+     */
+    public static byte[] unpack(byte[] packed) {
+        if (packed.length == 0) {
+            throw new IllegalStateException("Empty packed value");
+        }
+        if (packed[0] == FLAG_RAW) {
+            byte[] bytes = new byte[packed.length - 1];
+            System.arraycopy(packed, 1, bytes, 0, bytes.length);
+            return bytes;
+        }
+        if (packed[0] != FLAG_COMPRESSED || packed.length < 1 + Integer.BYTES) {
+            throw new IllegalStateException("Invalid packed value header");
+        }
+        int length = ByteBuffer.wrap(packed, 1, Integer.BYTES).getInt();
+        if (length < 0) {
+            throw new IllegalStateException("Invalid compressed value length: " + length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed, 1 + Integer.BYTES, packed.length - 1 - Integer.BYTES);
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, offset, length - offset);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // 数据被截断或长度头大于实际数据，继续inflate不会有进展
+                    throw new IllegalStateException("Truncated compressed value");
+                }
+                offset += inflated;
+            }
+            if (offset != length) {
+                throw new IllegalStateException("Compressed value length mismatch: expected " + length + ", actual " + offset);
+            }
+            return bytes;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private SerializeUtils() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,255 @@
+package com.cl.common.utils.cache;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * 布隆过滤器，位数组保存在本地，判断不存在时结果确定，判断存在时有fpp概率误判
+ * <p>
+ * 位顺序与Redis位图一致(第i位为第i/8个字节从高位起第i%8位)，{@link #toBytes()}可直接写入Redis，
+ * Redis中通过SETBIT/GET得到的位图可直接{@link #merge(byte[])}；哈希只依赖字符内容，不同节点使用相同参数时位置一致
+ * <p>
+ * 只能添加不能删除，线程安全，put与mightContain不加锁
+ *
+ * @author: CarterCL
+ * @date: 2022/1/21 17:00
+ * @version: V1.0
+ */
+public final class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    private final AtomicLongArray words;
+
+    /**
+     * 按预计元素数与误判率计算位数与哈希函数个数
+     *
+     * @param expectedInsertions 预计元素数
+     * @param fpp                误判率，如0.01
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0L) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (fpp <= 0D || fpp >= 1D) {
+            throw new IllegalArgumentException("fpp must be in (0, 1)");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = Math.toIntExact((bits + 63L) >>> 6);
+        this.words = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value value
+     * @return 有位由0变为1时true，false表示元素可能已存在
+     */
+    public boolean put(String value) {
+        long hash = hash(value);
+        long hash1 = hash;
+        long hash2 = mix(hash + GOLDEN_GAMMA) | 1L;
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            changed |= setBit(index(hash1));
+            hash1 += hash2;
+        }
+        return changed;
+    }
+
+    /**
+     * 批量添加元素
+     *
+     * @param values values
+     */
+    public void putAll(Collection<String> values) {
+        for (String value : values) {
+            put(value);
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在
+     *
+     * @param value value
+     * @return false时确定不存在
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long hash1 = hash;
+        long hash2 = mix(hash + GOLDEN_GAMMA) | 1L;
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = index(hash1);
+            if ((words.get((int) (index >>> 6)) & mask(index)) == 0L) {
+                return false;
+            }
+            hash1 += hash2;
+        }
+        return true;
+    }
+
+    /**
+     * 遍历元素对应的位偏移，用于同步到Redis位图(SETBIT)
+     *
+     * @param value    value
+     * @param consumer 位偏移
+     */
+    public void forEachBit(String value, LongConsumer consumer) {
+        long hash = hash(value);
+        long hash1 = hash;
+        long hash2 = mix(hash + GOLDEN_GAMMA) | 1L;
+        for (int i = 0; i < hashFunctions; i++) {
+            consumer.accept(index(hash1));
+            hash1 += hash2;
+        }
+    }
+
+    /**
+     * 合并Redis位图，按位或，超出位数的部分忽略
+     *
+     * @param bitmap 位图，可短于{@link #toBytes()}
+     */
+    public void merge(byte[] bitmap) {
+        int length = Math.min(bitmap.length, words.length() << 3);
+        for (int offset = 0; offset < length; offset += 8) {
+            long word = 0L;
+            for (int i = 0; i < 8; i++) {
+                int index = offset + i;
+                word = (word << 8) | (index < length ? bitmap[index] & 0xFFL : 0L);
+            }
+            if (word != 0L) {
+                orWord(offset >>> 3, word);
+            }
+        }
+    }
+
+    /**
+     * 合并另一个参数相同的过滤器
+     *
+     * @param other other
+     */
+    public void merge(BloomFilter other) {
+        if (other.bitSize != bitSize || other.hashFunctions != hashFunctions) {
+            throw new IllegalArgumentException("BloomFilter size mismatch");
+        }
+        for (int i = 0; i < words.length(); i++) {
+            long word = other.words.get(i);
+            if (word != 0L) {
+                orWord(i, word);
+            }
+        }
+    }
+
+    /**
+     * 导出为Redis位图格式
+     *
+     * @return 位图，长度为bitSize/8
+     */
+    public byte[] toBytes() {
+        byte[] bitmap = new byte[words.length() << 3];
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            for (int j = 0; j < 8; j++) {
+                bitmap[(i << 3) + j] = (byte) (word >>> (56 - (j << 3)));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 位数
+     *
+     * @return 位数
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * 哈希函数个数
+     *
+     * @return 个数
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * 按当前置位比例估算的误判率，超过创建时的fpp说明元素数超出预计，应重建更大的过滤器
+     *
+     * @return 误判率
+     */
+    public double getExpectedFpp() {
+        long bitCount = 0L;
+        for (int i = 0; i < words.length(); i++) {
+            bitCount += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) bitCount / bitSize, hashFunctions);
+    }
+
+    private boolean setBit(long index) {
+        int wordIndex = (int) (index >>> 6);
+        long mask = mask(index);
+        long word = words.get(wordIndex);
+        if ((word & mask) != 0L) {
+            return false;
+        }
+        orWord(wordIndex, mask);
+        return true;
+    }
+
+    private void orWord(int wordIndex, long bits) {
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word | bits) == word) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | bits));
+    }
+
+    private long index(long hash) {
+        return (hash & Long.MAX_VALUE) % bitSize;
+    }
+
+    /**
+     * 字内从高位起，与Redis位图字节序一致
+     */
+    private static long mask(long index) {
+        return Long.MIN_VALUE >>> (index & 63L);
+    }
+
+    /**
+     * FNV-1a，按字符计算，不生成byte[]
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash ^ value.length());
+    }
+
+    /**
+     * murmur3 fmix64
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cl.common.utils.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+
+/**
+ * 缓存过期策略，默认按缓存配置的TTL过期，并支持通过Caffeine的VarExpiration为单个key指定TTL
+ * <p>
+ * 单独指定的TTL在下次写入前保持不变；缓存时间根据访问刷新的缓存，访问后按默认TTL重新计算
+ *
+ * @author: CarterCL
+ * @date: 2022/1/11 14:20
+ * @version: V1.0
+ */
+public final class CacheExpiry implements Expiry<String, Object> {
+
+    private final boolean isAfterAccess;
+
+    private volatile Duration duration;
+
+    private volatile long durationNanos;
+
+    public CacheExpiry(boolean isAfterAccess, Duration duration) {
+        this.isAfterAccess = isAfterAccess;
+        setDuration(duration);
+    }
+
+    /**
+     * 获取默认TTL
+     *
+     * @return TTL，为null时不过期
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * 设置默认TTL，对之后写入(及根据访问刷新的缓存之后的访问)生效
+     *
+     * @param duration TTL，为null时不过期
+     */
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+        this.durationNanos = duration == null ? Long.MAX_VALUE : duration.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(String key, Object value, long currentTime) {
+        return durationNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+        return durationNanos;
+    }
+
+    @Override
+    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+        return isAfterAccess ? durationNanos : currentDuration;
+    }
+}
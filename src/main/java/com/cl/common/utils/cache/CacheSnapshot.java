@@ -0,0 +1,160 @@
+package com.cl.common.utils.cache;
+
+import com.cl.common.enums.CacheStoreModeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 缓存快照文件读写，经缓冲流顺序读写，不在内存中拼接整个文件，文件大小不受2GB限制
+ * <p>
+ * 文件格式(大端): magic(int) + version(short) + 条目数(int) + 条目...
+ * <br>
+ * 条目: key长度(int) + key(UTF-8) + 过期时间戳(long，毫秒，不过期为Long.MAX_VALUE) + value长度(int) + value(CacheValueCodec COMPRESSED编码)
+ *
+ * @author: CarterCL
+ * @date: 2022/1/12 16:30
+ * @version: V1.0
+ */
+public final class CacheSnapshot {
+
+    /**
+     * 文件标识 "CLCS"
+     */
+    private static final int MAGIC = 0x434C4353;
+
+    private static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Integer.BYTES;
+
+    /**
+     * 条目数在文件中的位置，写完条目后回填
+     */
+    private static final int COUNT_OFFSET = Integer.BYTES + Short.BYTES;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 不过期
+     */
+    public static final long NEVER_EXPIRE = Long.MAX_VALUE;
+
+    /**
+     * 写入快照，条目逐个编码后经缓冲流顺序写入临时文件，写完回填条目数后原子替换，不可序列化的值将被跳过
+     *
+     * @param file    快照文件
+     * @param entries 条目
+     * @return 写入的条目数
+     * @throws IOException IO异常
+     */
+    public static int write(Path file, Iterable<Entry> entries) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(0);
+            for (Entry entry : entries) {
+                byte[] value;
+                try {
+                    value = (byte[]) CacheValueCodec.encode(entry.getValue(), CacheStoreModeEnum.COMPRESSED);
+                } catch (IllegalArgumentException ex) {
+                    continue;
+                }
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(entry.getExpireAt());
+                out.writeInt(value.length);
+                out.write(value);
+                count++;
+            }
+            out.flush();
+            ByteBuffer countBuffer = ByteBuffer.allocate(Integer.BYTES).putInt(count);
+            countBuffer.flip();
+            channel.write(countBuffer, COUNT_OFFSET);
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * 读取快照，已过期的条目将被跳过
+     *
+     * @param file 快照文件
+     * @return 条目，文件不存在时为空
+     * @throws IOException IO异常
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        if (Files.size(file) < HEADER_SIZE) {
+            throw new IOException("Invalid cache snapshot: " + file);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Invalid cache snapshot: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported cache snapshot version " + version + ": " + file);
+            }
+            int count = in.readInt();
+            long now = System.currentTimeMillis();
+            List<Entry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                long expireAt = in.readLong();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                if (expireAt > now) {
+                    entries.add(new Entry(new String(key, StandardCharsets.UTF_8),
+                            CacheValueCodec.decode(value, CacheStoreModeEnum.COMPRESSED), expireAt));
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * 快照条目
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Entry {
+
+        private final String key;
+
+        private final Object value;
+
+        /**
+         * 过期时间戳(毫秒)，不过期为{@link #NEVER_EXPIRE}
+         */
+        private final long expireAt;
+    }
+
+    private CacheSnapshot() {
+        throw new UnsupportedOperationException();
+    }
+}
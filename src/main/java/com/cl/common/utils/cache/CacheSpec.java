@@ -0,0 +1,94 @@
+package com.cl.common.utils.cache;
+
+import com.cl.common.enums.CacheStoreModeEnum;
+import com.github.benmanes.caffeine.cache.Weigher;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * 缓存配置
+ *
+ * @author: CarterCL
+ * @date: 2022/1/10 09:30
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public final class CacheSpec {
+
+    /**
+     * 缓存时间是否根据访问刷新
+     */
+    private final boolean afterAccess;
+
+    /**
+     * TTL，为null时不过期
+     */
+    private final Duration duration;
+
+    /**
+     * 最大缓存个数
+     */
+    @Builder.Default
+    private final long maximumSize = 10000;
+
+    /**
+     * 是否以Redis作为二级缓存(值仅支持String)，写入/删除时通过Redis发布订阅通知其他节点失效本地缓存
+     */
+    private final boolean redisBacked;
+
+    /**
+     * 写入后多久异步刷新，为null时不刷新；刷新期间调用方仍获取旧值
+     */
+    private final Duration refreshAfterWrite;
+
+    /**
+     * 是否使用AsyncLoadingCache，开启后getAsync共享进行中的加载future，等待加载时不占用线程；
+     * 未开启时getAsync在线程池中执行同步加载
+     */
+    private final boolean asyncLoad;
+
+    /**
+     * 是否记录统计信息(命中率、加载耗时、淘汰数等)
+     */
+    private final boolean recordStats;
+
+    /**
+     * 最大缓存权重(字节)，大于0时替代maximumSize按权重淘汰
+     */
+    private final long maximumWeight;
+
+    /**
+     * 权重计算，为null时使用CacheWeighers.bytes()；OBJECT存储方式按权重淘汰时必须指定
+     */
+    private final Weigher<String, Object> weigher;
+
+    /**
+     * 值存储方式
+     */
+    @Builder.Default
+    private final CacheStoreModeEnum storeMode = CacheStoreModeEnum.OBJECT;
+
+    /**
+     * 是否持久化快照，开启CacheUtils.enableSnapshot后定时写入本地文件并在启动时恢复(值需实现Serializable)；
+     * Redis二级缓存恢复的值在剩余TTL内可能与Redis不一致
+     */
+    private final boolean snapshot;
+
+    /**
+     * 是否为long类型key的缓存，使用LongKeyCache存储，读取不装箱、不分配对象；
+     * 仅支持maximumSize、duration、afterAccess配置，通过CacheUtils的long key重载方法访问
+     */
+    private final boolean longKey;
+
+    /**
+     * 跨节点单飞租约时长(至少1毫秒)，为null时不开启，仅对Redis二级缓存生效；
+     * 本地与Redis均未命中时通过Redis争抢租约，仅获得租约的节点执行自定义方法，其他节点在租约时长内等待其写入Redis，超时后自行加载；
+     * 加载结果为空时租约期内其他节点直接返回null；异步刷新未获得租约时继续使用旧值
+     */
+    private final Duration singleFlightLease;
+}
@@ -0,0 +1,74 @@
+package com.cl.common.utils.cache;
+
+import java.util.function.Supplier;
+
+/**
+ * 缓存统计JMX实现，每次读取属性时获取最新快照
+ *
+ * @author: CarterCL
+ * @date: 2022/1/8 11:05
+ * @version: V1.0
+ */
+public final class CacheStatsBean implements CacheStatsMXBean {
+
+    private final Supplier<CacheStatsSnapshot> snapshotSupplier;
+
+    public CacheStatsBean(Supplier<CacheStatsSnapshot> snapshotSupplier) {
+        this.snapshotSupplier = snapshotSupplier;
+    }
+
+    @Override
+    public long getHitCount() {
+        return snapshotSupplier.get().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return snapshotSupplier.get().getMissCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return snapshotSupplier.get().getHitRate();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return snapshotSupplier.get().getLoadSuccessCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return snapshotSupplier.get().getLoadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+        return snapshotSupplier.get().getAverageLoadPenalty();
+    }
+
+    @Override
+    public long getLoadTimeP50() {
+        return snapshotSupplier.get().getLoadTimeP50();
+    }
+
+    @Override
+    public long getLoadTimeP99() {
+        return snapshotSupplier.get().getLoadTimeP99();
+    }
+
+    @Override
+    public long getLoadTimeP999() {
+        return snapshotSupplier.get().getLoadTimeP999();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return snapshotSupplier.get().getEvictionCount();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return snapshotSupplier.get().getEstimatedSize();
+    }
+}
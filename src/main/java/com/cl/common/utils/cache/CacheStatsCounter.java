@@ -0,0 +1,62 @@
+package com.cl.common.utils.cache;
+
+import com.cl.common.utils.metrics.LatencyHistogram;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+/**
+ * 缓存统计，在Caffeine默认统计的基础上记录加载耗时分布
+ *
+ * @author: CarterCL
+ * @date: 2022/1/8 10:40
+ * @version: V1.0
+ */
+public final class CacheStatsCounter implements StatsCounter {
+
+    private final StatsCounter delegate = new ConcurrentStatsCounter();
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    @Override
+    public void recordHits(int count) {
+        delegate.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        delegate.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+        loadLatency.record(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        delegate.recordLoadFailure(loadTime);
+        loadLatency.record(loadTime);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        delegate.recordEviction(weight, cause);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * 加载耗时分布
+     *
+     * @return histogram
+     */
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+}
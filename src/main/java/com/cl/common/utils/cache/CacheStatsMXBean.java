@@ -0,0 +1,33 @@
+package com.cl.common.utils.cache;
+
+/**
+ * 缓存统计JMX接口
+ *
+ * @author: CarterCL
+ * @date: 2022/1/8 11:00
+ * @version: V1.0
+ */
+public interface CacheStatsMXBean {
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    double getAverageLoadPenalty();
+
+    long getLoadTimeP50();
+
+    long getLoadTimeP99();
+
+    long getLoadTimeP999();
+
+    long getEvictionCount();
+
+    long getEstimatedSize();
+}
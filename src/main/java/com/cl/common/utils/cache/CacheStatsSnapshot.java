@@ -0,0 +1,78 @@
+package com.cl.common.utils.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 缓存统计快照
+ *
+ * @author: CarterCL
+ * @date: 2022/1/8 10:50
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class CacheStatsSnapshot {
+
+    /**
+     * 缓存名
+     */
+    private final String cacheName;
+
+    /**
+     * 命中次数
+     */
+    private final long hitCount;
+
+    /**
+     * 未命中次数
+     */
+    private final long missCount;
+
+    /**
+     * 命中率
+     */
+    private final double hitRate;
+
+    /**
+     * 加载成功次数
+     */
+    private final long loadSuccessCount;
+
+    /**
+     * 加载失败次数
+     */
+    private final long loadFailureCount;
+
+    /**
+     * 平均加载耗时(纳秒)
+     */
+    private final double averageLoadPenalty;
+
+    /**
+     * 加载耗时P50(纳秒)
+     */
+    private final long loadTimeP50;
+
+    /**
+     * 加载耗时P99(纳秒)
+     */
+    private final long loadTimeP99;
+
+    /**
+     * 加载耗时P999(纳秒)
+     */
+    private final long loadTimeP999;
+
+    /**
+     * 淘汰个数
+     */
+    private final long evictionCount;
+
+    /**
+     * 当前缓存个数(估算)
+     */
+    private final long estimatedSize;
+}
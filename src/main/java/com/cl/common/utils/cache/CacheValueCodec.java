@@ -0,0 +1,83 @@
+package com.cl.common.utils.cache;
+
+import com.cl.common.enums.CacheStoreModeEnum;
+import com.cl.common.utils.SerializeUtils;
+
+/**
+ * 缓存值编解码，按存储方式将对象转换为byte[]/堆外块
+ * <p>
+ * 编码格式见{@link SerializeUtils#pack}
+ *
+ * @author: CarterCL
+ * @date: 2022/1/9 15:20
+ * @version: V1.0
+ */
+public final class CacheValueCodec {
+
+    /**
+     * 压缩阈值(字节)
+     */
+    private static final int COMPRESS_THRESHOLD = 1024;
+
+    /**
+     * 编码，不支持OFF_HEAP
+     *
+     * @param value     value
+     * @param storeMode 存储方式
+     * @return 编码后的值
+     */
+    public static Object encode(Object value, CacheStoreModeEnum storeMode) {
+        return encode(value, storeMode, null);
+    }
+
+    /**
+     * 编码
+     *
+     * @param value     value
+     * @param storeMode 存储方式
+     * @param arena     OFF_HEAP时的堆外内存分配器
+     * @return 编码后的值，OFF_HEAP堆外内存不足时为堆内byte[]
+     */
+    public static Object encode(Object value, CacheStoreModeEnum storeMode, OffHeapArena arena) {
+        if (value == null || storeMode == CacheStoreModeEnum.OBJECT) {
+            return value;
+        }
+        int threshold = storeMode == CacheStoreModeEnum.SERIALIZED ? Integer.MAX_VALUE : COMPRESS_THRESHOLD;
+        byte[] bytes = SerializeUtils.pack(SerializeUtils.serialize(value), threshold);
+        if (storeMode == CacheStoreModeEnum.OFF_HEAP) {
+            if (arena == null) {
+                throw new IllegalArgumentException("OFF_HEAP store mode requires an OffHeapArena");
+            }
+            OffHeapArena.Chunk chunk = arena.allocate(bytes);
+            return chunk == null ? bytes : chunk;
+        }
+        return bytes;
+    }
+
+    /**
+     * 解码
+     *
+     * @param value     编码后的值
+     * @param storeMode 存储方式
+     * @return value，堆外块读取期间被释放时为null
+     */
+    public static Object decode(Object value, CacheStoreModeEnum storeMode) {
+        if (value == null || storeMode == CacheStoreModeEnum.OBJECT) {
+            return value;
+        }
+        byte[] bytes;
+        if (value instanceof OffHeapArena.Chunk) {
+            bytes = ((OffHeapArena.Chunk) value).read();
+            if (bytes == null) {
+                return null;
+            }
+        } else {
+            bytes = (byte[]) value;
+        }
+        return SerializeUtils.deserialize(SerializeUtils.unpack(bytes));
+    }
+
+    private CacheValueCodec() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,62 @@
+package com.cl.common.utils.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 常用缓存权重计算
+ *
+ * @author: CarterCL
+ * @date: 2022/1/9 15:40
+ * @version: V1.0
+ */
+public final class CacheWeighers {
+
+    /**
+     * 单个缓存条目的固定开销估算(字节)
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /**
+     * 无法估算大小的对象按此计算(字节)
+     */
+    private static final int DEFAULT_VALUE_WEIGHT = 256;
+
+    /**
+     * 按字节数估算：String/byte[]/ByteBuffer/堆外块按实际长度计算，其他对象无法估算，按固定值计算；
+     * OBJECT存储方式按权重淘汰时需自定义weigher
+     *
+     * @return weigher
+     */
+    public static Weigher<String, Object> bytes() {
+        return (key, value) -> {
+            long weight = ENTRY_OVERHEAD + stringWeight(key) + valueWeight(value);
+            return (int) Math.min(Integer.MAX_VALUE, weight);
+        };
+    }
+
+    private static long stringWeight(String value) {
+        return 40L + 2L * value.length();
+    }
+
+    private static long valueWeight(Object value) {
+        if (value instanceof String) {
+            return stringWeight((String) value);
+        }
+        if (value instanceof byte[]) {
+            return 16L + ((byte[]) value).length;
+        }
+        if (value instanceof OffHeapArena.Chunk) {
+            return ENTRY_OVERHEAD + ((OffHeapArena.Chunk) value).getCapacity();
+        }
+        if (value instanceof ByteBuffer) {
+            return ENTRY_OVERHEAD + ((ByteBuffer) value).capacity();
+        }
+        return DEFAULT_VALUE_WEIGHT;
+    }
+
+    private CacheWeighers() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,463 @@
+package com.cl.common.utils.cache;
+
+import java.time.Duration;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * long类型key的本地缓存，key不装箱、不转换为String，读取路径不分配对象
+ * <p>
+ * 按key哈希分段，每段为开放寻址哈希表，读取使用StampedLock乐观读，写入使用段写锁；
+ * 超出最大个数时按CLOCK(近似LRU)淘汰，过期按写入(或访问)时间计算；
+ * 读取时的访问标记与过期时间刷新通过tryWriteLock写入，锁被占用时跳过，单独指定TTL的条目不随访问刷新
+ *
+ * @author: CarterCL
+ * @date: 2022/1/13 10:10
+ * @version: V1.0
+ */
+public final class LongKeyCache {
+
+    private static final int SEGMENT_BITS = 4;
+
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    private static final byte EMPTY = 0;
+
+    private static final byte FULL = 1;
+
+    private static final byte DELETED = 2;
+
+    private static final long NEVER_EXPIRE = Long.MAX_VALUE;
+
+    /**
+     * 根据访问刷新的缓存，过期时间推后超过该值时才刷新，避免每次读取都获取写锁
+     */
+    private static final long ACCESS_REFRESH_NANOS = 1_000_000L;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    private final boolean isAfterAccess;
+
+    private volatile long durationNanos;
+
+    /**
+     * @param maximumSize   最大缓存个数
+     * @param duration      TTL，为null时不过期
+     * @param isAfterAccess 缓存时间是否根据访问刷新
+     */
+    public LongKeyCache(long maximumSize, Duration duration, boolean isAfterAccess) {
+        int segmentCapacity = (int) Math.min(Integer.MAX_VALUE >> 2, Math.max(1L, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT));
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.isAfterAccess = isAfterAccess;
+        setDuration(duration);
+    }
+
+    /**
+     * 获取值
+     *
+     * @param key key
+     * @return value，不存在或已过期时为null
+     */
+    public Object get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, (int) hash);
+    }
+
+    /**
+     * 获取值，若获取不到，则执行自定义方法设置值；并发未命中时自定义方法可能执行多次，但只保留先写入的值
+     *
+     * @param key           key
+     * @param valueFunction 自定义方法
+     * @return value
+     */
+    public Object get(long key, LongFunction<Object> valueFunction) {
+        Object value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = valueFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        Object existValue = putIfAbsent(key, value);
+        return existValue == null ? value : existValue;
+    }
+
+    /**
+     * 设置值
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(long key, Object value) {
+        put(key, value, durationNanos, false);
+    }
+
+    /**
+     * 设置值并单独指定TTL
+     *
+     * @param key   key
+     * @param value value
+     * @param ttl   TTL，不随访问刷新
+     */
+    public void put(long key, Object value, Duration ttl) {
+        put(key, value, ttl.toNanos(), true);
+    }
+
+    /**
+     * 设置值，若不存在则返回null,存在返回已存在的value
+     *
+     * @param key   key
+     * @param value value
+     * @return value
+     */
+    public Object putIfAbsent(long key, Object value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = hash(key);
+        return segmentFor(hash).put(key, (int) hash, value, durationNanos, false, true);
+    }
+
+    /**
+     * 删除key
+     *
+     * @param key key
+     */
+    public void remove(long key) {
+        long hash = hash(key);
+        segmentFor(hash).remove(key, (int) hash);
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前缓存个数(含未清理的过期条目)
+     *
+     * @return size
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 设置默认TTL，对之后的写入生效
+     *
+     * @param duration TTL，为null时不过期
+     */
+    public void setDuration(Duration duration) {
+        this.durationNanos = duration == null ? NEVER_EXPIRE : duration.toNanos();
+    }
+
+    private void put(long key, Object value, long ttlNanos, boolean isExplicitTtl) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = hash(key);
+        segmentFor(hash).put(key, (int) hash, value, ttlNanos, isExplicitTtl, false);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static long deadline(long now, long ttlNanos) {
+        if (ttlNanos == NEVER_EXPIRE) {
+            return NEVER_EXPIRE;
+        }
+        long deadline = now + ttlNanos;
+        return deadline < now ? NEVER_EXPIRE : deadline;
+    }
+
+    /**
+     * 哈希表，扩容时整体替换
+     */
+    private static final class Table {
+
+        private final long[] keys;
+
+        private final Object[] values;
+
+        /**
+         * 过期时间(System.nanoTime)
+         */
+        private final long[] deadlines;
+
+        private final byte[] states;
+
+        /**
+         * CLOCK访问标记
+         */
+        private final boolean[] referenced;
+
+        /**
+         * 是否单独指定了TTL，为true时不随访问刷新
+         */
+        private final boolean[] explicitTtl;
+
+        private final int mask;
+
+        private Table(int length) {
+            this.keys = new long[length];
+            this.values = new Object[length];
+            this.deadlines = new long[length];
+            this.states = new byte[length];
+            this.referenced = new boolean[length];
+            this.explicitTtl = new boolean[length];
+            this.mask = length - 1;
+        }
+    }
+
+    private final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+
+        private final int capacity;
+
+        private volatile Table table = new Table(INITIAL_TABLE_SIZE);
+
+        private volatile int size;
+
+        /**
+         * 已删除(墓碑)个数
+         */
+        private int deleted;
+
+        /**
+         * CLOCK指针
+         */
+        private int hand;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private Object get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            Table current = table;
+            int index = find(current, key, hash);
+            Object value = index < 0 ? null : current.values[index];
+            long deadline = index < 0 ? 0L : current.deadlines[index];
+            boolean isReferenced = index >= 0 && current.referenced[index];
+            boolean isExplicitTtl = index >= 0 && current.explicitTtl[index];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    current = table;
+                    index = find(current, key, hash);
+                    value = index < 0 ? null : current.values[index];
+                    deadline = index < 0 ? 0L : current.deadlines[index];
+                    isReferenced = index >= 0 && current.referenced[index];
+                    isExplicitTtl = index >= 0 && current.explicitTtl[index];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (value == null) {
+                return null;
+            }
+            long newDeadline = deadline;
+            if (deadline != NEVER_EXPIRE) {
+                long now = System.nanoTime();
+                if (deadline - now <= 0) {
+                    return null;
+                }
+                if (isAfterAccess && !isExplicitTtl) {
+                    newDeadline = deadline(now, durationNanos);
+                }
+            }
+            boolean isRefresh = newDeadline != deadline && newDeadline - deadline > ACCESS_REFRESH_NANOS;
+            if (isRefresh || !isReferenced) {
+                touch(current, index, key, value, isRefresh, newDeadline);
+            }
+            return value;
+        }
+
+        /**
+         * 记录访问，写锁被占用时跳过；持锁后校验该位置仍为读取到的条目，避免写入已删除后复用的位置或已被扩容替换的表
+         */
+        private void touch(Table current, int index, long key, Object value, boolean isRefresh, long newDeadline) {
+            long stamp = lock.tryWriteLock();
+            if (stamp == 0L) {
+                return;
+            }
+            try {
+                if (table != current || current.states[index] != FULL || current.keys[index] != key || current.values[index] != value) {
+                    return;
+                }
+                current.referenced[index] = true;
+                if (isRefresh && !current.explicitTtl[index]) {
+                    current.deadlines[index] = newDeadline;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private Object put(long key, int hash, Object value, long ttlNanos, boolean isExplicitTtl, boolean isOnlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                long now = System.nanoTime();
+                Table current = table;
+                int index = find(current, key, hash);
+                if (index >= 0) {
+                    boolean isExpired = current.deadlines[index] != NEVER_EXPIRE && current.deadlines[index] - now <= 0;
+                    if (isOnlyIfAbsent && !isExpired) {
+                        return current.values[index];
+                    }
+                    current.values[index] = value;
+                    current.deadlines[index] = deadline(now, ttlNanos);
+                    current.referenced[index] = true;
+                    current.explicitTtl[index] = isExplicitTtl;
+                    return null;
+                }
+                if (size >= capacity) {
+                    evict(now);
+                }
+                current = ensureCapacity();
+                int slot = hash & current.mask;
+                while (current.states[slot] == FULL) {
+                    slot = (slot + 1) & current.mask;
+                }
+                if (current.states[slot] == DELETED) {
+                    deleted--;
+                }
+                current.keys[slot] = key;
+                current.values[slot] = value;
+                current.deadlines[slot] = deadline(now, ttlNanos);
+                current.referenced[slot] = false;
+                current.explicitTtl[slot] = isExplicitTtl;
+                current.states[slot] = FULL;
+                size++;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int index = find(current, key, hash);
+                if (index >= 0) {
+                    delete(current, index);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = new Table(INITIAL_TABLE_SIZE);
+                size = 0;
+                deleted = 0;
+                hand = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 查找key所在位置，探测次数不超过表长，保证乐观读时不会死循环
+         */
+        private int find(Table current, long key, int hash) {
+            int index = hash & current.mask;
+            for (int probe = 0; probe <= current.mask; probe++) {
+                byte state = current.states[index];
+                if (state == EMPTY) {
+                    return -1;
+                }
+                if (state == FULL && current.keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & current.mask;
+            }
+            return -1;
+        }
+
+        /**
+         * CLOCK淘汰一个条目，优先淘汰已过期的条目
+         */
+        private void evict(long now) {
+            Table current = table;
+            int length = current.mask + 1;
+            for (int i = 0; i < length * 2; i++) {
+                int index = hand;
+                hand = (hand + 1) & current.mask;
+                if (current.states[index] != FULL) {
+                    continue;
+                }
+                boolean isExpired = current.deadlines[index] != NEVER_EXPIRE && current.deadlines[index] - now <= 0;
+                if (!isExpired && current.referenced[index]) {
+                    current.referenced[index] = false;
+                    continue;
+                }
+                delete(current, index);
+                return;
+            }
+        }
+
+        private void delete(Table current, int index) {
+            current.states[index] = DELETED;
+            current.values[index] = null;
+            current.referenced[index] = false;
+            size--;
+            deleted++;
+        }
+
+        /**
+         * 保证负载因子不超过0.5，墓碑较多时原大小重建，否则扩容
+         */
+        private Table ensureCapacity() {
+            Table current = table;
+            int length = current.mask + 1;
+            if ((size + deleted + 1) * 2 <= length) {
+                return current;
+            }
+            int newLength = (size + 1) * 4 <= length ? length : length << 1;
+            Table resized = new Table(newLength);
+            for (int i = 0; i < length; i++) {
+                if (current.states[i] != FULL) {
+                    continue;
+                }
+                int slot = (int) hash(current.keys[i]) & resized.mask;
+                while (resized.states[slot] == FULL) {
+                    slot = (slot + 1) & resized.mask;
+                }
+                resized.keys[slot] = current.keys[i];
+                resized.values[slot] = current.values[i];
+                resized.deadlines[slot] = current.deadlines[i];
+                resized.referenced[slot] = current.referenced[i];
+                resized.explicitTtl[slot] = current.explicitTtl[i];
+                resized.states[slot] = FULL;
+            }
+            deleted = 0;
+            hand = 0;
+            table = resized;
+            return resized;
+        }
+    }
+}
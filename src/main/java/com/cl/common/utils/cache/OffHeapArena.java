@@ -0,0 +1,240 @@
+package com.cl.common.utils.cache;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外内存分配器，供OFF_HEAP存储方式使用
+ * <p>
+ * 按2的幂分级(64B~4MB)，每级从4MB的直接内存slab中切分固定大小的块，块释放后放回该级空闲列表复用，
+ * 不为每个值单独allocateDirect；slab只增不减，总量不超过创建时的上限，超出上限或大于4MB时不分配，由调用方存放在堆内
+ * <p>
+ * 块释放后可能立即被其他值复用，读取时校验块的版本号，读取期间块被释放时返回null
+ *
+ * @author: CarterCL
+ * @date: 2022/1/9 16:00
+ * @version: V1.0
+ */
+public final class OffHeapArena {
+
+    private static final int MIN_CHUNK_SHIFT = 6;
+
+    private static final int SLAB_SHIFT = 22;
+
+    /**
+     * 单个slab大小，同时为最大块大小
+     */
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+
+    private final long maxBytes;
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    private final SizeClass[] sizeClasses = new SizeClass[SLAB_SHIFT - MIN_CHUNK_SHIFT + 1];
+
+    /**
+     * @param maxBytes 直接内存上限(字节)，至少分配1个slab
+     */
+    public OffHeapArena(long maxBytes) {
+        this.maxBytes = Math.max(maxBytes, SLAB_SIZE);
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_CHUNK_SHIFT + i));
+        }
+    }
+
+    /**
+     * 将数据写入堆外块
+     *
+     * @param bytes 数据
+     * @return 块，超出上限或数据大于slab时为null
+     */
+    public Chunk allocate(byte[] bytes) {
+        if (bytes.length > SLAB_SIZE) {
+            return null;
+        }
+        int shift = Math.max(MIN_CHUNK_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(bytes.length, 1) - 1));
+        Chunk chunk = sizeClasses[shift - MIN_CHUNK_SHIFT].allocate(bytes.length);
+        if (chunk != null) {
+            ByteBuffer buffer = chunk.slab.buffer.duplicate();
+            buffer.position(chunk.offset());
+            buffer.put(bytes);
+        }
+        return chunk;
+    }
+
+    /**
+     * 释放块，非块的值忽略，重复释放无影响
+     *
+     * @param value 缓存中保存的值
+     */
+    public void release(Object value) {
+        if (value instanceof Chunk) {
+            Chunk chunk = (Chunk) value;
+            Slab slab = chunk.slab;
+            if (slab.generations.compareAndSet(chunk.index, chunk.generation, chunk.generation + 1)) {
+                slab.owner.free(slab, chunk.index);
+            }
+        }
+    }
+
+    /**
+     * 已分配的直接内存(字节)
+     *
+     * @return 字节数
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    private boolean reserveSlab() {
+        long allocated;
+        do {
+            allocated = allocatedBytes.get();
+            if (allocated + SLAB_SIZE > maxBytes) {
+                return false;
+            }
+        } while (!allocatedBytes.compareAndSet(allocated, allocated + SLAB_SIZE));
+        return true;
+    }
+
+    /**
+     * 堆外块，缓存中保存该对象
+     */
+    public static final class Chunk {
+
+        private final Slab slab;
+
+        private final int index;
+
+        private final int length;
+
+        private final int generation;
+
+        private Chunk(Slab slab, int index, int length, int generation) {
+            this.slab = slab;
+            this.index = index;
+            this.length = length;
+            this.generation = generation;
+        }
+
+        /**
+         * 读取数据
+         *
+         * @return 数据，块已被释放时为null
+         */
+        public byte[] read() {
+            byte[] bytes = new byte[length];
+            ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.position(offset());
+            buffer.get(bytes);
+            // 与StampedLock.validate相同，确保复制在版本号校验之前完成
+            VarHandle.acquireFence();
+            return slab.generations.get(index) == generation ? bytes : null;
+        }
+
+        /**
+         * 块大小(字节)，用于权重计算
+         *
+         * @return 字节数
+         */
+        public int getCapacity() {
+            return slab.chunkSize;
+        }
+
+        private int offset() {
+            return index * slab.chunkSize;
+        }
+    }
+
+    private static final class Slab {
+
+        private final SizeClass owner;
+
+        private final ByteBuffer buffer;
+
+        private final int chunkSize;
+
+        /**
+         * 每个块的版本号，释放时加1
+         */
+        private final AtomicIntegerArray generations;
+
+        private Slab(SizeClass owner, ByteBuffer buffer, int chunkSize) {
+            this.owner = owner;
+            this.buffer = buffer;
+            this.chunkSize = chunkSize;
+            this.generations = new AtomicIntegerArray(buffer.capacity() / chunkSize);
+        }
+    }
+
+    /**
+     * 同一大小的块及其空闲列表
+     */
+    private final class SizeClass {
+
+        private final int chunkSize;
+
+        private Slab[] freeSlabs = new Slab[16];
+
+        private int[] freeIndexes = new int[16];
+
+        private int freeCount;
+
+        private SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        private synchronized Chunk allocate(int length) {
+            if (freeCount == 0 && !grow()) {
+                return null;
+            }
+            freeCount--;
+            Slab slab = freeSlabs[freeCount];
+            int index = freeIndexes[freeCount];
+            freeSlabs[freeCount] = null;
+            return new Chunk(slab, index, length, slab.generations.get(index));
+        }
+
+        private synchronized void free(Slab slab, int index) {
+            if (freeCount == freeSlabs.length) {
+                ensureCapacity(freeCount * 2);
+            }
+            freeSlabs[freeCount] = slab;
+            freeIndexes[freeCount] = index;
+            freeCount++;
+        }
+
+        private boolean grow() {
+            if (!reserveSlab()) {
+                return false;
+            }
+            Slab slab;
+            try {
+                slab = new Slab(this, ByteBuffer.allocateDirect(SLAB_SIZE), chunkSize);
+            } catch (OutOfMemoryError ex) {
+                allocatedBytes.addAndGet(-SLAB_SIZE);
+                return false;
+            }
+            int chunks = SLAB_SIZE / chunkSize;
+            ensureCapacity(freeCount + chunks);
+            // 倒序放入，先分配低地址的块
+            for (int i = chunks - 1; i >= 0; i--) {
+                freeSlabs[freeCount] = slab;
+                freeIndexes[freeCount] = i;
+                freeCount++;
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > freeSlabs.length) {
+                int newCapacity = Math.max(capacity, freeSlabs.length * 2);
+                freeSlabs = Arrays.copyOf(freeSlabs, newCapacity);
+                freeIndexes = Arrays.copyOf(freeIndexes, newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.cl.common.utils.redis;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Redis异步命令，与RedisUtils的同步方法一一对应，调用线程只负责发送命令，结果通过CompletableFuture返回
+ * <p>
+ * 回调默认在Lettuce的IO线程中执行，不应在回调中执行阻塞操作；需要阻塞时使用thenXxxAsync切换线程池
+ *
+ * @author: CarterCL
+ * @date: 2022/1/14 09:30
+ * @version: V1.0
+ */
+public final class RedisAsync {
+
+    private static final String OK = "OK";
+
+    private final Supplier<RedisClusterAsyncCommands<String, String>> commandsSupplier;
+
+    /**
+     * 命令发出后回调，可为null
+     */
+    private final Consumer<CompletableFuture<?>> commandListener;
+
+    /**
+     * 修改字符串或哈希值的命令完成后对其key回调，用于失效客户端缓存，可为null
+     */
+    private final Consumer<String> writeListener;
+
+    /**
+     * @param commandsSupplier 异步命令，每次调用时获取，以便连接重新初始化后生效
+     */
+    public RedisAsync(Supplier<RedisClusterAsyncCommands<String, String>> commandsSupplier) {
+        this(commandsSupplier, null, null);
+    }
+
+    /**
+     * @param commandsSupplier 异步命令，每次调用时获取，以便连接重新初始化后生效
+     * @param commandListener  命令发出后回调，用于管道中收集结果
+     */
+    public RedisAsync(Supplier<RedisClusterAsyncCommands<String, String>> commandsSupplier, Consumer<CompletableFuture<?>> commandListener) {
+        this(commandsSupplier, commandListener, null);
+    }
+
+    /**
+     * @param commandsSupplier 异步命令，每次调用时获取，以便连接重新初始化后生效
+     * @param commandListener  命令发出后回调，用于管道中收集结果
+     * @param writeListener    修改字符串或哈希值的命令完成后对其key回调，用于失效客户端缓存
+     */
+    public RedisAsync(Supplier<RedisClusterAsyncCommands<String, String>> commandsSupplier, Consumer<CompletableFuture<?>> commandListener,
+                      Consumer<String> writeListener) {
+        this.commandsSupplier = commandsSupplier;
+        this.commandListener = commandListener;
+        this.writeListener = writeListener;
+    }
+
+    //region 字符串
+
+    /**
+     * set
+     *
+     * @param key   key
+     * @param value value
+     * @return future
+     */
+    public CompletableFuture<Void> set(String key, String value) {
+        return track(written(commands().set(key, value), key)).thenApply(result -> null);
+    }
+
+    /**
+     * get
+     *
+     * @param key key
+     * @return value future
+     */
+    public CompletableFuture<String> get(String key) {
+        return track(commands().get(key));
+    }
+
+    /**
+     * setEx
+     *
+     * @param key     key
+     * @param value   value
+     * @param seconds 过期时间(秒)
+     * @return future
+     */
+    public CompletableFuture<Void> setEx(String key, String value, Long seconds) {
+        return track(written(commands().setex(key, seconds, value), key)).thenApply(result -> null);
+    }
+
+    /**
+     * pSetEx
+     *
+     * @param key          key
+     * @param value        value
+     * @param milliseconds 过期时间(毫秒)
+     * @return future
+     */
+    public CompletableFuture<Void> pSetEx(String key, String value, Long milliseconds) {
+        return track(written(commands().psetex(key, milliseconds, value), key)).thenApply(result -> null);
+    }
+
+    /**
+     * setNx
+     *
+     * @param key   key
+     * @param value value
+     * @return set成功true，失败(key已存在)false
+     */
+    public CompletableFuture<Boolean> setNx(String key, String value) {
+        return track(written(commands().setnx(key, value), key));
+    }
+
+    /**
+     * setNx with expire
+     *
+     * @param key     key
+     * @param value   value
+     * @param timeout 过期时间
+     * @return set成功true，失败(key已存在)false
+     */
+    public CompletableFuture<Boolean> setNxWithExpire(String key, String value, Duration timeout) {
+        return track(written(commands().set(key, value, SetArgs.Builder.nx().px(timeout.toMillis())), key)).thenApply(OK::equals);
+    }
+
+    /**
+     * mGet
+     *
+     * @param keys keys
+     * @return key->value map，不存在的key不包含在内
+     */
+    public CompletableFuture<Map<String, String>> mGet(String... keys) {
+        return track(commands().mget(keys)).thenApply(keyValues -> {
+            Map<String, String> map = new HashMap<>(keys.length * 2);
+            for (KeyValue<String, String> keyValue : keyValues) {
+                if (keyValue.hasValue()) {
+                    map.put(keyValue.getKey(), keyValue.getValue());
+                }
+            }
+            return map;
+        });
+    }
+
+    /**
+     * mSet
+     *
+     * @param map key->value map
+     * @return future
+     */
+    public CompletableFuture<Void> mSet(Map<String, String> map) {
+        return track(written(commands().mset(map), map.keySet().toArray(new String[0]))).thenApply(result -> null);
+    }
+
+    /**
+     * setBit
+     *
+     * @param key    key
+     * @param offset 位偏移
+     * @param value  0或1
+     * @return 原值
+     */
+    public CompletableFuture<Long> setBit(String key, long offset, int value) {
+        return track(written(commands().setbit(key, offset, value), key));
+    }
+
+    //endregion
+
+    //region 列表
+
+    /**
+     * lPush
+     *
+     * @param key    key
+     * @param values values
+     * @return length
+     */
+    public CompletableFuture<Long> lPush(String key, String... values) {
+        return track(commands().lpush(key, values));
+    }
+
+    /**
+     * rPush
+     *
+     * @param key    key
+     * @param values values
+     * @return length
+     */
+    public CompletableFuture<Long> rPush(String key, String... values) {
+        return track(commands().rpush(key, values));
+    }
+
+    /**
+     * lPop
+     *
+     * @param key key
+     * @return value
+     */
+    public CompletableFuture<String> lPop(String key) {
+        return track(commands().lpop(key));
+    }
+
+    /**
+     * lPop
+     *
+     * @param key   key
+     * @param count count
+     * @return values
+     */
+    public CompletableFuture<List<String>> lPop(String key, Integer count) {
+        return track(commands().lpop(key, count));
+    }
+
+    /**
+     * rPop
+     *
+     * @param key key
+     * @return value
+     */
+    public CompletableFuture<String> rPop(String key) {
+        return track(commands().rpop(key));
+    }
+
+    /**
+     * rPop
+     *
+     * @param key   key
+     * @param count count
+     * @return values
+     */
+    public CompletableFuture<List<String>> rPop(String key, Integer count) {
+        return track(commands().rpop(key, count));
+    }
+
+    /**
+     * lRem
+     *
+     * @param key   key
+     * @param count 大于0从头部、小于0从尾部删除count个，等于0删除全部
+     * @param value value
+     * @return 删除个数
+     */
+    public CompletableFuture<Long> lRem(String key, long count, String value) {
+        return track(commands().lrem(key, count, value));
+    }
+
+    //endregion
+
+    //region 集合
+
+    /**
+     * sAdd
+     *
+     * @param key     key
+     * @param members members
+     * @return count
+     */
+    public CompletableFuture<Long> sAdd(String key, String... members) {
+        return track(commands().sadd(key, members));
+    }
+
+    /**
+     * sMembers
+     *
+     * @param key key
+     * @return members
+     */
+    public CompletableFuture<Set<String>> sMembers(String key) {
+        return track(commands().smembers(key));
+    }
+
+    //endregion
+
+    //region 有序集合
+
+    /**
+     * zAdd
+     *
+     * @param key   key
+     * @param score score
+     * @param value value
+     * @return count
+     */
+    public CompletableFuture<Long> zAdd(String key, double score, String value) {
+        return track(commands().zadd(key, score, value));
+    }
+
+    /**
+     * zRange
+     *
+     * @param key        key
+     * @param startIndex 起始索引
+     * @param stopIndex  结束索引
+     * @return list
+     */
+    public CompletableFuture<List<String>> zRange(String key, int startIndex, int stopIndex) {
+        return track(commands().zrange(key, startIndex, stopIndex));
+    }
+
+    /**
+     * zRange withScores
+     *
+     * @param key        key
+     * @param startIndex 起始索引
+     * @param stopIndex  结束索引
+     * @return list
+     */
+    public CompletableFuture<List<ScoredValue<String>>> zRangeWithScores(String key, int startIndex, int stopIndex) {
+        return track(commands().zrangeWithScores(key, startIndex, stopIndex));
+    }
+
+    /**
+     * zRangeByScore
+     *
+     * @param key        key
+     * @param min        最小值
+     * @param max        最大值
+     * @param includeMin 是否包含最小值
+     * @param includeMax 是否包含最大值
+     * @return list
+     */
+    public CompletableFuture<List<String>> zRangeByScore(String key, double min, double max, boolean includeMin, boolean includeMax) {
+        return track(commands().zrangebyscore(key, toRange(min, max, includeMin, includeMax)));
+    }
+
+    /**
+     * zRangeByScore withScores
+     *
+     * @param key        key
+     * @param min        最小值
+     * @param max        最大值
+     * @param includeMin 是否包含最小值
+     * @param includeMax 是否包含最大值
+     * @return list
+     */
+    public CompletableFuture<List<ScoredValue<String>>> zRangeByScoreWithScores(String key, double min, double max, boolean includeMin, boolean includeMax) {
+        return track(commands().zrangebyscoreWithScores(key, toRange(min, max, includeMin, includeMax)));
+    }
+
+    //endregion
+
+    //region 哈希
+
+    /**
+     * hSet
+     *
+     * @param key   key
+     * @param field field
+     * @param value value
+     * @return 新增field为true
+     */
+    public CompletableFuture<Boolean> hSet(String key, String field, String value) {
+        return track(written(commands().hset(key, field, value), key));
+    }
+
+    /**
+     * hSet
+     *
+     * @param key key
+     * @param map field->value map
+     * @return count
+     */
+    public CompletableFuture<Long> hSet(String key, Map<String, String> map) {
+        return track(written(commands().hset(key, map), key));
+    }
+
+    /**
+     * hGet
+     *
+     * @param key   key
+     * @param field field
+     * @return value
+     */
+    public CompletableFuture<String> hGet(String key, String field) {
+        return track(commands().hget(key, field));
+    }
+
+    /**
+     * hGetAll
+     *
+     * @param key key
+     * @return map
+     */
+    public CompletableFuture<Map<String, String>> hGetAll(String key) {
+        return track(commands().hgetall(key));
+    }
+
+    /**
+     * hDel
+     *
+     * @param key    key
+     * @param fields fields
+     * @return count
+     */
+    public CompletableFuture<Long> hDel(String key, String... fields) {
+        return track(written(commands().hdel(key, fields), key));
+    }
+
+    //endregion
+
+    //region 常用命令
+
+    /**
+     * incr
+     *
+     * @param key key
+     * @return value
+     */
+    public CompletableFuture<Long> incr(String key) {
+        return track(written(commands().incr(key), key));
+    }
+
+    /**
+     * incr
+     *
+     * @param key    key
+     * @param amount amount
+     * @return value
+     */
+    public CompletableFuture<Long> incr(String key, Long amount) {
+        return track(written(commands().incrby(key, amount), key));
+    }
+
+    /**
+     * decr
+     *
+     * @param key key
+     * @return value
+     */
+    public CompletableFuture<Long> decr(String key) {
+        return track(written(commands().decr(key), key));
+    }
+
+    /**
+     * decr
+     *
+     * @param key    key
+     * @param amount amount
+     * @return value
+     */
+    public CompletableFuture<Long> decr(String key, Long amount) {
+        return track(written(commands().decrby(key, amount), key));
+    }
+
+    /**
+     * 执行lua脚本，脚本按内容缓存且有上限，固定脚本应使用RedisScript常量
+     *
+     * @param luaScript lua脚本
+     * @param keys      keys
+     * @param args      args
+     * @param clazz     返回值类型
+     * @return 结果
+     */
+    public <T> CompletableFuture<T> eval(String luaScript, String[] keys, String[] args, Class<T> clazz) {
+        return eval(RedisScript.cached(luaScript), keys, args, ScriptOutputTypes.of(clazz));
+    }
+
+    /**
+     * 执行lua脚本，通过EVALSHA执行，服务端未缓存时自动改用EVAL
+     *
+     * @param script     lua脚本
+     * @param keys       keys
+     * @param args       args
+     * @param outputType 返回值类型
+     * @return 结果
+     */
+    public <T> CompletableFuture<T> eval(RedisScript script, String[] keys, String[] args, ScriptOutputType outputType) {
+        return track(written(script.evalAsync(commands(), outputType, keys, args), keys));
+    }
+
+    //endregion
+
+    //region 通用命令
+
+    /**
+     * del
+     *
+     * @param keys keys
+     * @return count
+     */
+    public CompletableFuture<Long> del(String... keys) {
+        return track(written(commands().del(keys), keys));
+    }
+
+    /**
+     * unlink
+     *
+     * @param keys keys
+     * @return count
+     */
+    public CompletableFuture<Long> unlink(String... keys) {
+        return track(written(commands().unlink(keys), keys));
+    }
+
+    /**
+     * 设置ttl(秒)
+     *
+     * @param key     key
+     * @param seconds seconds
+     * @return key存在true
+     */
+    public CompletableFuture<Boolean> expire(String key, Long seconds) {
+        return track(commands().expire(key, seconds));
+    }
+
+    /**
+     * 设置ttl(毫秒)
+     *
+     * @param key          key
+     * @param milliseconds milliseconds
+     * @return key存在true
+     */
+    public CompletableFuture<Boolean> pExpire(String key, Long milliseconds) {
+        return track(commands().pexpire(key, milliseconds));
+    }
+
+    //endregion
+
+    private RedisClusterAsyncCommands<String, String> commands() {
+        return commandsSupplier.get();
+    }
+
+    private <T> CompletableFuture<T> track(RedisFuture<T> redisFuture) {
+        return track(redisFuture.toCompletableFuture());
+    }
+
+    private <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        if (commandListener != null) {
+            commandListener.accept(future);
+        }
+        return future;
+    }
+
+    /**
+     * 命令完成后先对修改的key回调，返回的future在回调之后完成，调用方后续的读取不会读到失效前的本地缓存
+     */
+    private <T> CompletableFuture<T> written(CompletionStage<T> command, String... keys) {
+        CompletableFuture<T> future = command.toCompletableFuture();
+        if (writeListener == null) {
+            return future;
+        }
+        return future.whenComplete((result, ex) -> {
+            for (String key : keys) {
+                writeListener.accept(key);
+            }
+        });
+    }
+
+    private static Range<Double> toRange(double min, double max, boolean includeMin, boolean includeMax) {
+        Range.Boundary<Double> minBoundary = includeMin ? Range.Boundary.including(min) : Range.Boundary.excluding(min);
+        Range.Boundary<Double> maxBoundary = includeMax ? Range.Boundary.including(max) : Range.Boundary.excluding(max);
+        return Range.from(minBoundary, maxBoundary);
+    }
+}
@@ -0,0 +1,254 @@
+package com.cl.common.utils.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushListener;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于Redis 6 CLIENT TRACKING的客户端缓存，缓存get/hGet的结果，key被修改时由服务端推送失效消息；
+ * 字符串按key个数、哈希按已缓存的field个数计算容量
+ * <p>
+ * 使用独立连接开启tracking(需RESP3协议，Lettuce默认自动协商)，读取与失效消息在同一连接上保证顺序；
+ * 读取期间收到失效消息时不写入缓存，断线期间不使用缓存，重连后清空缓存并重新开启tracking
+ *
+ * @author: CarterCL
+ * @date: 2022/1/17 10:30
+ * @version: V1.0
+ */
+public final class RedisClientCache implements AutoCloseable {
+
+    private static final String INVALIDATE = "invalidate";
+
+    private final AbstractRedisClient client;
+
+    private final StatefulRedisConnection<String, String> connection;
+
+    /**
+     * key -> value，读取中为占位对象
+     */
+    private final Cache<String, Object> values;
+
+    /**
+     * key -> field -> value，读取中为占位对象
+     */
+    private final Cache<String, Map<String, Object>> hashes;
+
+    /**
+     * 每次清空缓存时递增，读取前后不一致时不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final PushListener pushListener = this::onPushMessage;
+
+    private final RedisConnectionStateListener stateListener = new RedisConnectionStateListener() {
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress socketAddress) {
+            if (handler == connection) {
+                clear();
+                enableTracking();
+            }
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            if (handler == connection) {
+                isTracking = false;
+                clear();
+            }
+        }
+
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> handler, Throwable cause) {
+        }
+    };
+
+    private volatile boolean isTracking = false;
+
+    /**
+     * @param client      客户端，用于监听重连
+     * @param connection  独立的单机连接，关闭时一并关闭
+     * @param maximumSize 最大缓存字符串key个数，哈希的最大缓存field个数与之相同
+     */
+    public RedisClientCache(AbstractRedisClient client, StatefulRedisConnection<String, String> connection, long maximumSize) {
+        this.client = client;
+        this.connection = connection;
+        this.values = Caffeine.newBuilder().maximumSize(maximumSize).build();
+        this.hashes = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .<String, Map<String, Object>>weigher((key, fields) -> Math.max(1, fields.size()))
+                .build();
+        connection.addListener(pushListener);
+        client.addListener(stateListener);
+        connection.sync().clientTracking(TrackingArgs.Builder.enabled());
+        isTracking = true;
+    }
+
+    /**
+     * get，优先读取本地缓存
+     *
+     * @param key key
+     * @return value
+     */
+    public String get(String key) {
+        Object cached = values.getIfPresent(key);
+        if (cached instanceof String) {
+            hitCount.increment();
+            return (String) cached;
+        }
+        missCount.increment();
+        long currentGeneration = generation.get();
+        Object loading = new Object();
+        boolean isLoading = isTracking && cached == null && values.asMap().putIfAbsent(key, loading) == null;
+        String value = null;
+        try {
+            value = connection.sync().get(key);
+            return value;
+        } finally {
+            if (isLoading) {
+                complete(values.asMap(), key, loading, value, currentGeneration);
+            }
+        }
+    }
+
+    /**
+     * hGet，优先读取本地缓存
+     *
+     * @param key   key
+     * @param field field
+     * @return value
+     */
+    public String hGet(String key, String field) {
+        Map<String, Object> fields = hashes.getIfPresent(key);
+        Object cached = fields == null ? null : fields.get(field);
+        if (cached instanceof String) {
+            hitCount.increment();
+            return (String) cached;
+        }
+        missCount.increment();
+        long currentGeneration = generation.get();
+        Object loading = new Object();
+        boolean isLoading = false;
+        if (isTracking && cached == null) {
+            fields = hashes.get(key, k -> new ConcurrentHashMap<>());
+            isLoading = fields.putIfAbsent(field, loading) == null;
+        }
+        String value = null;
+        try {
+            value = connection.sync().hget(key, field);
+            return value;
+        } finally {
+            if (isLoading) {
+                complete(fields, field, loading, value, currentGeneration);
+                // field个数变化后重新计算权重，哈希已被失效时不再写回
+                Map<String, Object> loadedFields = fields;
+                hashes.asMap().computeIfPresent(key, (k, current) -> current == loadedFields ? loadedFields : current);
+            }
+        }
+    }
+
+    /**
+     * 失效本地缓存
+     *
+     * @param key key
+     */
+    public void invalidate(String key) {
+        values.invalidate(key);
+        hashes.invalidate(key);
+    }
+
+    /**
+     * 清空本地缓存
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        values.invalidateAll();
+        hashes.invalidateAll();
+    }
+
+    /**
+     * 命中次数
+     *
+     * @return hitCount
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     *
+     * @return missCount
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public void close() {
+        isTracking = false;
+        client.removeListener(stateListener);
+        connection.removeListener(pushListener);
+        clear();
+        connection.close();
+    }
+
+    /**
+     * 读取完成，占位对象未被失效且期间未清空时写入缓存，否则移除占位对象
+     */
+    private void complete(Map<String, Object> map, String key, Object loading, String value, long loadingGeneration) {
+        if (value != null && isTracking && generation.get() == loadingGeneration) {
+            map.replace(key, loading, value);
+        } else {
+            map.remove(key, loading);
+        }
+    }
+
+    /**
+     * 重连后重新开启tracking，在IO线程中回调，不能同步等待
+     */
+    private void enableTracking() {
+        connection.async().clientTracking(TrackingArgs.Builder.enabled()).whenComplete((result, ex) -> {
+            if (ex == null) {
+                clear();
+                isTracking = true;
+            } else {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onPushMessage(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys == null) {
+            // FLUSHALL/FLUSHDB
+            clear();
+            return;
+        }
+        for (Object key : (List<Object>) keys) {
+            invalidate((String) key);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.SerializeUtils;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * Redis值编解码，key均为UTF-8字符串
+ * <p>
+ * 通过RedisUtils.commands(codec)使用，每个codec实例对应一个连接，应复用codec实例
+ *
+ * @author: CarterCL
+ * @date: 2022/1/18 10:00
+ * @version: V1.0
+ */
+public final class RedisCodecs {
+
+    private static final RedisCodec<String, byte[]> BYTES = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private static final RedisCodec<String, ByteBuffer> BYTE_BUFFERS = new ByteBufferCodec();
+
+    private static final RedisCodec<String, Object> SERIALIZABLE = new ObjectCodec<>(SerializeUtils::serialize, SerializeUtils::deserialize);
+
+    /**
+     * 原始byte[]值
+     *
+     * @return codec
+     */
+    public static RedisCodec<String, byte[]> bytes() {
+        return BYTES;
+    }
+
+    /**
+     * 原始ByteBuffer值，解码结果为堆内ByteBuffer
+     *
+     * @return codec
+     */
+    public static RedisCodec<String, ByteBuffer> byteBuffers() {
+        return BYTE_BUFFERS;
+    }
+
+    /**
+     * Java序列化对象值，值需实现Serializable
+     *
+     * @return codec
+     */
+    public static RedisCodec<String, Object> serializable() {
+        return SERIALIZABLE;
+    }
+
+    /**
+     * 自定义序列化对象值
+     *
+     * @param serializer   序列化
+     * @param deserializer 反序列化
+     * @return codec
+     */
+    public static <T> RedisCodec<String, T> object(Function<T, byte[]> serializer, Function<byte[], T> deserializer) {
+        return new ObjectCodec<>(serializer, deserializer);
+    }
+
+    /**
+     * 按阈值压缩值，编码后的值超过阈值时使用deflate压缩，否则仅增加1字节标记；
+     * 编码格式见{@link SerializeUtils#pack}，值需通过同一codec读写
+     *
+     * @param codec     原始codec
+     * @param threshold 压缩阈值(字节)
+     * @return codec
+     */
+    public static <V> RedisCodec<String, V> compressed(RedisCodec<String, V> codec, int threshold) {
+        return new CompressionCodec<>(codec, threshold);
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static final class ByteBufferCodec implements RedisCodec<String, ByteBuffer> {
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return StringCodec.UTF8.decodeKey(bytes);
+        }
+
+        @Override
+        public ByteBuffer decodeValue(ByteBuffer bytes) {
+            return ByteBuffer.wrap(toBytes(bytes));
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return StringCodec.UTF8.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(ByteBuffer value) {
+            return value == null ? ByteBuffer.allocate(0) : value.duplicate();
+        }
+    }
+
+    private static final class ObjectCodec<T> implements RedisCodec<String, T> {
+
+        private final Function<T, byte[]> serializer;
+
+        private final Function<byte[], T> deserializer;
+
+        private ObjectCodec(Function<T, byte[]> serializer, Function<byte[], T> deserializer) {
+            this.serializer = serializer;
+            this.deserializer = deserializer;
+        }
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return StringCodec.UTF8.decodeKey(bytes);
+        }
+
+        @Override
+        public T decodeValue(ByteBuffer bytes) {
+            return bytes.hasRemaining() ? deserializer.apply(toBytes(bytes)) : null;
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return StringCodec.UTF8.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(T value) {
+            return value == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(serializer.apply(value));
+        }
+    }
+
+    private static final class CompressionCodec<V> implements RedisCodec<String, V> {
+
+        private final RedisCodec<String, V> codec;
+
+        private final int threshold;
+
+        private CompressionCodec(RedisCodec<String, V> codec, int threshold) {
+            this.codec = codec;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return codec.decodeKey(bytes);
+        }
+
+        @Override
+        public V decodeValue(ByteBuffer bytes) {
+            if (!bytes.hasRemaining()) {
+                return codec.decodeValue(bytes);
+            }
+            return codec.decodeValue(ByteBuffer.wrap(SerializeUtils.unpack(toBytes(bytes))));
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return codec.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(V value) {
+            return ByteBuffer.wrap(SerializeUtils.pack(toBytes(codec.encodeValue(value)), threshold));
+        }
+    }
+
+    private RedisCodecs() {
+        throw new UnsupportedOperationException();
+    }
+}
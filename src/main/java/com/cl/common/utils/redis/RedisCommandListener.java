@@ -0,0 +1,23 @@
+package com.cl.common.utils.redis;
+
+/**
+ * Redis命令完成回调，用于将命令耗时接入其他监控系统
+ * <p>
+ * 在Lettuce的IO线程中回调，不应执行阻塞操作
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 15:00
+ * @version: V1.0
+ */
+@FunctionalInterface
+public interface RedisCommandListener {
+
+    /**
+     * 命令完成
+     *
+     * @param command 命令类型，如GET、EVALSHA
+     * @param nanos   从写出到完成的耗时(纳秒)
+     * @param error   失败或取消时的异常，成功为null
+     */
+    void onCommand(String command, long nanos, Throwable error);
+}
@@ -0,0 +1,190 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.metrics.LatencyHistogram;
+import io.lettuce.core.event.command.CommandFailedEvent;
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandStartedEvent;
+import io.lettuce.core.event.command.CommandSucceededEvent;
+import io.lettuce.core.protocol.CompleteableCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis命令统计，按命令类型记录调用次数、失败次数与耗时分布，并统计已写出未完成的命令数
+ * <p>
+ * 通过Lettuce的CommandListener采集，耗时为命令写出到收到响应的时间(含网络与服务端排队)，
+ * 不含调用方等待连接池等客户端耗时；Lettuce事件时间精度为毫秒，因此开始时间另行以纳秒记录在事件上下文中
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 15:30
+ * @version: V1.0
+ */
+public final class RedisCommandMetrics implements CommandListener, RedisCommandMetricsMXBean {
+
+    private static final String START_NANOS = "startNanos";
+
+    private static final String COMPLETED = "completed";
+
+    /**
+     * 命令类型 -> 统计
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final List<RedisCommandListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 添加命令完成回调
+     *
+     * @param listener listener
+     */
+    public void addListener(RedisCommandListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 移除命令完成回调
+     *
+     * @param listener listener
+     */
+    public void removeListener(RedisCommandListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 获取指定命令类型的统计快照
+     *
+     * @param command 命令类型，如GET
+     * @return 统计快照，未执行过为null
+     */
+    public RedisCommandStats getCommandStats(String command) {
+        Counter counter = counters.get(command);
+        return counter == null ? null : counter.snapshot(command);
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public long getCallCount() {
+        long count = 0L;
+        for (Counter counter : counters.values()) {
+            count += counter.calls.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0L;
+        for (Counter counter : counters.values()) {
+            count += counter.errors.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public List<RedisCommandStats> getCommandStats() {
+        List<RedisCommandStats> stats = new ArrayList<>(counters.size());
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            stats.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return stats;
+    }
+
+    /**
+     * 清空耗时与次数统计，不影响inFlight
+     */
+    @Override
+    public void reset() {
+        counters.clear();
+    }
+
+    //region CommandListener
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        Map<String, Object> context = event.getContext();
+        context.put(START_NANOS, System.nanoTime());
+        inFlight.increment();
+        if (event.getCommand() instanceof CompleteableCommand) {
+            // 取消(连接关闭、重置)时Lettuce不发送完成事件，在此补充
+            ((CompleteableCommand<?>) event.getCommand()).onComplete((result, ex) -> {
+                if (ex instanceof CancellationException) {
+                    complete(event.getCommand().getType().name(), context, ex);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        complete(event.getCommand().getType().name(), event.getContext(), null);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        complete(event.getCommand().getType().name(), event.getContext(), event.getCause());
+    }
+
+    //endregion
+
+    /**
+     * 命令完成，同一命令只记录一次
+     */
+    private void complete(String command, Map<String, Object> context, Throwable error) {
+        Object startNanos;
+        synchronized (context) {
+            if (context.put(COMPLETED, Boolean.TRUE) != null) {
+                return;
+            }
+            startNanos = context.get(START_NANOS);
+        }
+        if (startNanos == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - (Long) startNanos;
+        inFlight.decrement();
+        Counter counter = counters.computeIfAbsent(command, c -> new Counter());
+        counter.calls.increment();
+        if (error != null) {
+            counter.errors.increment();
+        }
+        counter.latency.record(nanos);
+        for (RedisCommandListener listener : listeners) {
+            try {
+                listener.onCommand(command, nanos, error);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Counter {
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RedisCommandStats snapshot(String command) {
+            return new RedisCommandStats(command,
+                    calls.sum(),
+                    errors.sum(),
+                    latency.getMean(),
+                    latency.getPercentile(50),
+                    latency.getPercentile(99),
+                    latency.getPercentile(99.9));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.cl.common.utils.redis;
+
+import java.util.List;
+
+/**
+ * Redis命令统计JMX接口
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 15:20
+ * @version: V1.0
+ */
+public interface RedisCommandMetricsMXBean {
+
+    long getInFlight();
+
+    long getCallCount();
+
+    long getErrorCount();
+
+    List<RedisCommandStats> getCommandStats();
+
+    void reset();
+}
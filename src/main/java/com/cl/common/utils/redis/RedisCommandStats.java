@@ -0,0 +1,53 @@
+package com.cl.common.utils.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 单个Redis命令类型的统计快照
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 15:10
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class RedisCommandStats {
+
+    /**
+     * 命令类型
+     */
+    private final String command;
+
+    /**
+     * 累计调用次数
+     */
+    private final long callCount;
+
+    /**
+     * 累计失败次数(含取消)
+     */
+    private final long errorCount;
+
+    /**
+     * 平均耗时(纳秒)
+     */
+    private final double mean;
+
+    /**
+     * 耗时P50(纳秒)
+     */
+    private final long p50;
+
+    /**
+     * 耗时P99(纳秒)
+     */
+    private final long p99;
+
+    /**
+     * 耗时P99.9(纳秒)
+     */
+    private final long p999;
+}
@@ -0,0 +1,140 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.metrics.LatencyHistogram;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.support.AsyncConnectionPoolSupport;
+import io.lettuce.core.support.BoundedAsyncPool;
+import io.lettuce.core.support.BoundedPoolConfig;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Redis独占连接池，用于阻塞命令、事务等会占用连接的操作，避免阻塞共享连接上的其他命令
+ * <p>
+ * 基于Lettuce自带的BoundedAsyncPool，连接按需创建，最多maxTotal个
+ *
+ * @author: CarterCL
+ * @date: 2022/1/15 09:50
+ * @version: V1.0
+ */
+public final class RedisConnectionPool implements AutoCloseable {
+
+    private final BoundedAsyncPool<StatefulConnection<String, String>> pool;
+
+    private final Duration acquireTimeout;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LongAdder acquireCount = new LongAdder();
+
+    private final LongAdder acquireTimeoutCount = new LongAdder();
+
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+
+    /**
+     * @param connectionSupplier 创建连接
+     * @param maxTotal           最大连接数
+     * @param acquireTimeout     获取连接超时时间
+     */
+    public RedisConnectionPool(Supplier<CompletionStage<StatefulConnection<String, String>>> connectionSupplier,
+                               int maxTotal, Duration acquireTimeout) {
+        BoundedPoolConfig config = BoundedPoolConfig.builder()
+                .maxTotal(maxTotal)
+                .maxIdle(maxTotal)
+                .minIdle(0)
+                .testOnAcquire()
+                .build();
+        this.pool = AsyncConnectionPoolSupport.createBoundedObjectPool(connectionSupplier, config, false);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * 使用独占连接执行，执行完成后归还连接
+     *
+     * @param callback 回调
+     * @return 回调结果
+     */
+    public <T> T execute(Function<StatefulConnection<String, String>, T> callback) {
+        StatefulConnection<String, String> connection = borrow();
+        try {
+            return callback.apply(connection);
+        } finally {
+            release(connection);
+        }
+    }
+
+    /**
+     * 借出连接，无空闲连接且已达最大连接数时等待，超时抛出RedisException；使用完必须调用{@link #release}
+     *
+     * @return connection
+     */
+    public StatefulConnection<String, String> borrow() {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        CompletableFuture<StatefulConnection<String, String>> future = pool.acquire();
+        try {
+            StatefulConnection<String, String> connection = future.get(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            active.incrementAndGet();
+            return connection;
+        } catch (TimeoutException ex) {
+            // 超时后获取到的连接直接归还
+            future.thenAccept(pool::release);
+            acquireTimeoutCount.increment();
+            throw new RedisException("Timeout acquiring pooled connection after " + acquireTimeout);
+        } catch (ExecutionException ex) {
+            throw new RedisException("Failed to acquire pooled connection", ex.getCause());
+        } catch (InterruptedException ex) {
+            future.thenAccept(pool::release);
+            Thread.currentThread().interrupt();
+            throw new RedisException("Interrupted while acquiring pooled connection", ex);
+        } finally {
+            waiting.decrementAndGet();
+            acquireCount.increment();
+            acquireLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 归还连接
+     *
+     * @param connection connection
+     */
+    public void release(StatefulConnection<String, String> connection) {
+        active.decrementAndGet();
+        pool.release(connection);
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    public RedisPoolStats stats() {
+        return new RedisPoolStats(pool.getMaxTotal(),
+                pool.getObjectCount(),
+                pool.getIdle(),
+                active.get(),
+                waiting.get(),
+                acquireCount.sum(),
+                acquireTimeoutCount.sum(),
+                acquireLatency.getPercentile(50),
+                acquireLatency.getPercentile(99));
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.cl.common.utils.redis;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+
+/**
+ * 单机/哨兵/集群连接的统一处理
+ *
+ * @author: CarterCL
+ * @date: 2022/1/16 10:00
+ * @version: V1.0
+ */
+public final class RedisConnections {
+
+    /**
+     * 获取同步命令
+     *
+     * @param connection 连接
+     * @return commands
+     */
+    public static <K, V> RedisClusterCommands<K, V> sync(StatefulConnection<K, V> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<K, V>) connection).sync();
+        }
+        return ((StatefulRedisConnection<K, V>) connection).sync();
+    }
+
+    /**
+     * 获取异步命令
+     *
+     * @param connection 连接
+     * @return commands
+     */
+    public static <K, V> RedisClusterAsyncCommands<K, V> async(StatefulConnection<K, V> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<K, V>) connection).async();
+        }
+        return ((StatefulRedisConnection<K, V>) connection).async();
+    }
+
+    /**
+     * 设置读取节点选择，仅集群与主从(哨兵)连接支持，单机连接忽略
+     *
+     * @param connection 连接
+     * @param readFrom   读取节点选择
+     */
+    public static <K, V> void setReadFrom(StatefulConnection<K, V> connection, ReadFrom readFrom) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            ((StatefulRedisClusterConnection<K, V>) connection).setReadFrom(readFrom);
+        } else if (connection instanceof StatefulRedisMasterReplicaConnection) {
+            ((StatefulRedisMasterReplicaConnection<K, V>) connection).setReadFrom(readFrom);
+        }
+    }
+
+    /**
+     * 是否为集群连接
+     *
+     * @param connection 连接
+     * @return 集群连接true
+     */
+    public static boolean isCluster(StatefulConnection<?, ?> connection) {
+        return connection instanceof StatefulRedisClusterConnection;
+    }
+
+    private RedisConnections() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,337 @@
+package com.cl.common.utils.redis;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Redis计数合并器，计数先累加到本地每个key的LongAdder，后台按时间间隔或待写key数合并为一次管道INCRBY
+ * <p>
+ * 未发送或发送失败的增量保留在本地，下次刷新重试；超时等结果未知的增量服务端可能已执行，不重试以免重复计数；
+ * 通过RedisUtils创建时由RedisUtils在关闭连接前(或JVM退出时)刷新剩余增量，进程被强制终止时未刷新的增量丢失
+ *
+ * @author: CarterCL
+ * @date: 2022/1/21 15:00
+ * @version: V1.0
+ */
+public final class RedisCounterAggregator implements AutoCloseable {
+
+    /**
+     * close时写入剩余增量的最大尝试次数
+     */
+    private static final int CLOSE_FLUSH_ATTEMPTS = 3;
+
+    /**
+     * 管道执行，入参为在管道中发送命令的方法
+     */
+    private final Consumer<Consumer<RedisAsync>> pipelineExecutor;
+
+    private final long flushIntervalNanos;
+
+    private final int maxKeys;
+
+    /**
+     * key -> 未写入Redis的增量
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 上次刷新后有累加的key数，不含增量已写入的空闲key
+     */
+    private final AtomicInteger pendingKeys = new AtomicInteger();
+
+    /**
+     * 上次刷新时增量为0的key，本次仍为0时移除
+     */
+    private final Map<String, Counter> idle = new HashMap<>();
+
+    /**
+     * 上次刷新时移除的计数器，移除前获取到引用的线程可能仍在累加，本次刷新再检查一次
+     */
+    private List<Map.Entry<String, Counter>> retired = new ArrayList<>();
+
+    /**
+     * 提前刷新信号，最多保留1个
+     */
+    private final Semaphore flushSignal = new Semaphore(0);
+
+    private final Object flushLock = new Object();
+
+    private final Thread worker;
+
+    /**
+     * 关闭后回调，用于从创建方的注册中移除
+     */
+    private final Consumer<RedisCounterAggregator> closeListener;
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * @param pipelineExecutor 管道执行，如RedisUtils::pipeline
+     * @param flushInterval    刷新间隔
+     * @param maxKeys          待写key数达到该值时提前刷新
+     */
+    public RedisCounterAggregator(Consumer<Consumer<RedisAsync>> pipelineExecutor, Duration flushInterval, int maxKeys) {
+        this(pipelineExecutor, flushInterval, maxKeys, aggregator -> { });
+    }
+
+    /**
+     * @param pipelineExecutor 管道执行，如RedisUtils::pipeline
+     * @param flushInterval    刷新间隔
+     * @param maxKeys          待写key数达到该值时提前刷新
+     * @param closeListener    close写完剩余增量后执行
+     */
+    public RedisCounterAggregator(Consumer<Consumer<RedisAsync>> pipelineExecutor, Duration flushInterval, int maxKeys,
+                                  Consumer<RedisCounterAggregator> closeListener) {
+        this.pipelineExecutor = pipelineExecutor;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxKeys = maxKeys;
+        this.closeListener = closeListener;
+        this.worker = new Thread(this::run, "redis-counter-aggregator");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 计数加1
+     *
+     * @param key key
+     */
+    public void increment(String key) {
+        increment(key, 1L);
+    }
+
+    /**
+     * 计数增加delta
+     *
+     * @param key   key
+     * @param delta 增量，可为负数
+     * @throws IllegalStateException 已关闭
+     */
+    public void increment(String key, long delta) {
+        if (!isRunning) {
+            throw new IllegalStateException("RedisCounterAggregator is closed");
+        }
+        Counter counter = counter(key);
+        counter.add(delta);
+        if (counter.markPending() && pendingKeys.incrementAndGet() >= maxKeys && flushSignal.availablePermits() == 0) {
+            flushSignal.release();
+        }
+    }
+
+    /**
+     * 本地未写入Redis的增量
+     *
+     * @param key key
+     * @return 增量
+     */
+    public long getPending(String key) {
+        LongAdder adder = counters.get(key);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    /**
+     * 立即将本地增量写入Redis
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, Long> deltas = new HashMap<>(counters.size() * 2);
+            pendingKeys.set(0);
+            for (Map.Entry<String, Counter> entry : retired) {
+                drain(deltas, entry.getKey(), entry.getValue());
+            }
+            retired = new ArrayList<>();
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                String key = entry.getKey();
+                Counter adder = entry.getValue();
+                if (drain(deltas, key, adder)) {
+                    idle.remove(key);
+                } else if (idle.remove(key) == adder) {
+                    // 连续两次刷新没有增量
+                    if (counters.remove(key, adder)) {
+                        retired.add(entry);
+                    }
+                } else {
+                    idle.put(key, adder);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            Map<String, CompletableFuture<Long>> results = new HashMap<>(deltas.size() * 2);
+            try {
+                pipelineExecutor.accept(async -> {
+                    for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+                        results.put(delta.getKey(), async.incr(delta.getKey(), delta.getValue()));
+                    }
+                });
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+            for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+                CompletableFuture<Long> result = results.get(delta.getKey());
+                if (result == null) {
+                    // 未发送，放回本地等待下次刷新
+                    requeue(delta.getKey(), delta.getValue());
+                    continue;
+                }
+                if (!result.isCompletedExceptionally()) {
+                    // 成功，或未收到响应(服务端可能已执行，重试会重复计数)
+                    continue;
+                }
+                Throwable cause = causeOf(result);
+                if (cause instanceof RedisCommandExecutionException || cause instanceof RedisCommandTimeoutException) {
+                    // 服务端拒绝(如类型错误)重试无意义，超时则结果未知
+                    cause.printStackTrace();
+                    continue;
+                }
+                // 发送失败(如连接断开)，放回本地等待下次刷新
+                requeue(delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * 停止后台刷新并写入剩余增量，多次写入失败后仍未写入的增量输出到错误日志
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        flushSignal.release();
+        try {
+            worker.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        Map<String, Long> remaining = new HashMap<>();
+        for (int i = 0; i < CLOSE_FLUSH_ATTEMPTS; i++) {
+            flush();
+            remaining = pendingDeltas();
+            if (remaining.isEmpty()) {
+                break;
+            }
+        }
+        if (!remaining.isEmpty()) {
+            // 关闭后不再刷新，输出未写入的增量以便补偿
+            new IllegalStateException("RedisCounterAggregator closed with unwritten deltas: " + remaining).printStackTrace();
+        }
+        closeListener.accept(this);
+    }
+
+    private void run() {
+        while (isRunning) {
+            try {
+                flushSignal.tryAcquire(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (isRunning) {
+                    flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                isRunning = false;
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private Counter counter(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? counters.computeIfAbsent(key, k -> new Counter()) : counter;
+    }
+
+    /**
+     * 放回刷新失败的增量，不触发提前刷新，避免连接断开时反复刷新
+     */
+    private void requeue(String key, long delta) {
+        counter(key).add(delta);
+    }
+
+    /**
+     * 本地未写入Redis的全部增量
+     */
+    private Map<String, Long> pendingDeltas() {
+        synchronized (flushLock) {
+            Map<String, Long> deltas = new HashMap<>();
+            for (Map.Entry<String, Counter> entry : retired) {
+                sum(deltas, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                sum(deltas, entry.getKey(), entry.getValue());
+            }
+            return deltas;
+        }
+    }
+
+    private static void sum(Map<String, Long> deltas, String key, LongAdder adder) {
+        long sum = adder.sum();
+        if (sum != 0L) {
+            deltas.merge(key, sum, Long::sum);
+        }
+    }
+
+    private static Throwable causeOf(CompletableFuture<Long> result) {
+        if (!result.isDone()) {
+            return null;
+        }
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException ex) {
+            return ex.getCause();
+        } catch (CancellationException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * 取出增量，取出的部分从adder中扣减，期间并发的累加不会丢失
+     *
+     * @return 有增量true
+     */
+    private static boolean drain(Map<String, Long> deltas, String key, Counter adder) {
+        adder.clearPending();
+        long sum = adder.sum();
+        if (sum == 0L) {
+            return false;
+        }
+        adder.add(-sum);
+        deltas.merge(key, sum, Long::sum);
+        return true;
+    }
+
+    /**
+     * 单个key的计数器，记录上次刷新后是否有累加，用于统计待写key数
+     */
+    private static final class Counter extends LongAdder {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicBoolean isPending = new AtomicBoolean();
+
+        /**
+         * @return 由无累加变为有累加时true
+         */
+        private boolean markPending() {
+            return !isPending.get() && isPending.compareAndSet(false, true);
+        }
+
+        private void clearPending() {
+            isPending.set(false);
+        }
+    }
+}
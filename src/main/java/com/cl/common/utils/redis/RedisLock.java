@@ -0,0 +1,305 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.RedisUtils;
+import io.lettuce.core.ScriptOutputType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于Redis的分布式锁，可重入
+ * <p>
+ * 加锁时写入本次持有的token，解锁与续期通过lua脚本校验token，不会误删其他节点的锁；
+ * 持有期间后台按租期的1/3续期，进程宕机后锁在租期到期后自动释放
+ * <p>
+ * 等待方不轮询Redis：解锁时发布消息，等待方收到后重试，最长等待到锁的剩余TTL(消息丢失时兜底)；
+ * 同一JVM内的等待方按先后顺序获取
+ *
+ * @author: CarterCL
+ * @date: 2022/1/19 14:00
+ * @version: V1.0
+ */
+public final class RedisLock {
+
+    /**
+     * 解锁通知频道，消息为锁的key
+     */
+    private static final String RELEASE_CHANNEL = "redis-lock:released";
+
+    /**
+     * 加锁成功返回nil，失败返回锁的剩余TTL(毫秒)
+     */
+    private static final RedisScript ACQUIRE_SCRIPT = RedisScript.of(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return nil end " +
+            "return redis.call('PTTL', KEYS[1])");
+
+    private static final RedisScript RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('PUBLISH', ARGV[2], KEYS[1]) " +
+            "return 1 end " +
+            "return 0");
+
+    private static final RedisScript RENEW_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return 0");
+
+    /**
+     * PTTL返回值，key不存在
+     */
+    private static final long KEY_NOT_EXISTS = -2L;
+
+    /**
+     * 锁不存在TTL或TTL未知时的最长等待时间
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * key -> 本JVM内的等待方
+     */
+    private static final Map<String, Waiters> WAITERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean isSubscribed = false;
+
+    private final String key;
+
+    private final Duration leaseTime;
+
+    /**
+     * 本JVM内的互斥与重入，公平模式
+     */
+    private final ReentrantLock localLock = new ReentrantLock(true);
+
+    /**
+     * 当前持有的token，仅持有localLock的线程访问
+     */
+    private String token;
+
+    private ScheduledFuture<?> renewal;
+
+    /**
+     * @param key       锁的key
+     * @param leaseTime 租期，持有期间自动续期
+     */
+    public RedisLock(String key, Duration leaseTime) {
+        if (leaseTime.toMillis() < 30L) {
+            throw new IllegalArgumentException("leaseTime must be at least 30ms");
+        }
+        this.key = key;
+        this.leaseTime = leaseTime;
+    }
+
+    /**
+     * 加锁，直到成功
+     *
+     * @throws InterruptedException 等待期间被中断
+     */
+    public void lock() throws InterruptedException {
+        localLock.lockInterruptibly();
+        if (localLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            acquire(Long.MAX_VALUE);
+        } catch (InterruptedException | RuntimeException ex) {
+            localLock.unlock();
+            throw ex;
+        }
+    }
+
+    /**
+     * 尝试加锁，不等待
+     *
+     * @return 成功true
+     */
+    public boolean tryLock() {
+        try {
+            return tryLock(Duration.ZERO);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 尝试加锁，最多等待waitTime
+     *
+     * @param waitTime 最长等待时间
+     * @return 成功true
+     * @throws InterruptedException 等待期间被中断
+     */
+    public boolean tryLock(Duration waitTime) throws InterruptedException {
+        long deadline = System.nanoTime() + waitTime.toNanos();
+        if (!localLock.tryLock(waitTime.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        if (localLock.getHoldCount() > 1) {
+            return true;
+        }
+        boolean isLocked = false;
+        try {
+            isLocked = acquire(deadline);
+            return isLocked;
+        } finally {
+            if (!isLocked) {
+                localLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 解锁，重入时只减少持有次数
+     *
+     * @throws IllegalMonitorStateException 当前线程未持有锁，或租期已过期锁已被其他节点获取
+     */
+    public void unlock() {
+        if (!localLock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("RedisLock is not held by current thread: " + key);
+        }
+        if (localLock.getHoldCount() > 1) {
+            localLock.unlock();
+            return;
+        }
+        String heldToken = token;
+        token = null;
+        renewal.cancel(false);
+        renewal = null;
+        Long released;
+        try {
+            released = RedisUtils.eval(RELEASE_SCRIPT, new String[]{key}, new String[]{heldToken, RELEASE_CHANNEL}, Long.class);
+        } finally {
+            localLock.unlock();
+        }
+        if (released == null || released == 0L) {
+            throw new IllegalMonitorStateException("RedisLock lease expired before unlock: " + key);
+        }
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @return 持有true
+     */
+    public boolean isHeldByCurrentThread() {
+        return localLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * 获取Redis锁，需持有localLock
+     *
+     * @param deadline 截止时间(nanoTime)，Long.MAX_VALUE为不限
+     * @return 成功true
+     */
+    private boolean acquire(long deadline) throws InterruptedException {
+        String newToken = UUID.randomUUID().toString();
+        Long ttl = tryAcquire(newToken);
+        if (ttl == null) {
+            onAcquired(newToken);
+            return true;
+        }
+        if (deadline != Long.MAX_VALUE && deadline - System.nanoTime() <= 0) {
+            return false;
+        }
+        subscribe();
+        Waiters waiters = WAITERS.compute(key, (k, w) -> {
+            Waiters current = w == null ? new Waiters() : w;
+            current.count++;
+            return current;
+        });
+        try {
+            while (true) {
+                ttl = tryAcquire(newToken);
+                if (ttl == null) {
+                    onAcquired(newToken);
+                    return true;
+                }
+                long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (ttl == KEY_NOT_EXISTS) {
+                    // 加锁与PTTL之间锁已释放，立即重试
+                    continue;
+                }
+                long ttlNanos = ttl > 0 ? TimeUnit.MILLISECONDS.toNanos(ttl) : MAX_WAIT_NANOS;
+                waiters.released.tryAcquire(Math.min(remaining, ttlNanos), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            WAITERS.computeIfPresent(key, (k, w) -> --w.count == 0 ? null : w);
+        }
+    }
+
+    private Long tryAcquire(String newToken) {
+        return RedisUtils.eval(ACQUIRE_SCRIPT, new String[]{key}, new String[]{newToken, String.valueOf(leaseTime.toMillis())},
+                ScriptOutputType.INTEGER);
+    }
+
+    private void onAcquired(String newToken) {
+        token = newToken;
+        long period = leaseTime.toMillis() / 3;
+        String[] keys = {key};
+        String[] args = {newToken, String.valueOf(leaseTime.toMillis())};
+        ScheduledFuture<?>[] holder = new ScheduledFuture<?>[1];
+        holder[0] = WATCHDOG.scheduleAtFixedRate(() -> RedisUtils.async()
+                .<Long>eval(RENEW_SCRIPT, keys, args, ScriptOutputType.INTEGER)
+                .whenComplete((renewed, ex) -> {
+                    if (ex != null) {
+                        ex.printStackTrace();
+                    } else if (renewed == null || renewed == 0L) {
+                        // 锁已丢失，停止续期
+                        holder[0].cancel(false);
+                    }
+                }), period, period, TimeUnit.MILLISECONDS);
+        renewal = holder[0];
+    }
+
+    private static void subscribe() {
+        if (isSubscribed) {
+            return;
+        }
+        synchronized (RedisLock.class) {
+            if (!isSubscribed) {
+                RedisUtils.subscribe(RELEASE_CHANNEL, RedisLock::onReleased);
+                isSubscribed = true;
+            }
+        }
+    }
+
+    /**
+     * 收到解锁通知，唤醒一个等待方
+     */
+    private static void onReleased(String releasedKey) {
+        Waiters waiters = WAITERS.get(releasedKey);
+        if (waiters != null && waiters.released.availablePermits() == 0) {
+            waiters.released.release();
+        }
+    }
+
+    private static final class Waiters {
+
+        /**
+         * 解锁信号，最多保留1个
+         */
+        private final Semaphore released = new Semaphore(0, true);
+
+        /**
+         * 等待方个数，仅在WAITERS.compute中修改
+         */
+        private int count;
+    }
+}
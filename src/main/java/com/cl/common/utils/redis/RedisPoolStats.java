@@ -0,0 +1,63 @@
+package com.cl.common.utils.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Redis连接池统计快照
+ *
+ * @author: CarterCL
+ * @date: 2022/1/15 10:10
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class RedisPoolStats {
+
+    /**
+     * 最大连接数
+     */
+    private final int maxTotal;
+
+    /**
+     * 当前连接数(含使用中与空闲)
+     */
+    private final int total;
+
+    /**
+     * 空闲连接数
+     */
+    private final int idle;
+
+    /**
+     * 使用中连接数
+     */
+    private final int active;
+
+    /**
+     * 等待获取连接的线程数
+     */
+    private final int waiting;
+
+    /**
+     * 累计获取次数
+     */
+    private final long acquireCount;
+
+    /**
+     * 累计获取超时次数
+     */
+    private final long acquireTimeoutCount;
+
+    /**
+     * 获取连接耗时P50(纳秒)
+     */
+    private final long acquireTimeP50;
+
+    /**
+     * 获取连接耗时P99(纳秒)
+     */
+    private final long acquireTimeP99;
+}
@@ -0,0 +1,64 @@
+package com.cl.common.utils.redis;
+
+import java.util.function.Supplier;
+
+/**
+ * Redis连接池统计JMX实现，每次读取属性时获取最新快照
+ *
+ * @author: CarterCL
+ * @date: 2022/1/15 10:20
+ * @version: V1.0
+ */
+public final class RedisPoolStatsBean implements RedisPoolStatsMXBean {
+
+    private final Supplier<RedisPoolStats> statsSupplier;
+
+    public RedisPoolStatsBean(Supplier<RedisPoolStats> statsSupplier) {
+        this.statsSupplier = statsSupplier;
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return statsSupplier.get().getMaxTotal();
+    }
+
+    @Override
+    public int getTotal() {
+        return statsSupplier.get().getTotal();
+    }
+
+    @Override
+    public int getIdle() {
+        return statsSupplier.get().getIdle();
+    }
+
+    @Override
+    public int getActive() {
+        return statsSupplier.get().getActive();
+    }
+
+    @Override
+    public int getWaiting() {
+        return statsSupplier.get().getWaiting();
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return statsSupplier.get().getAcquireCount();
+    }
+
+    @Override
+    public long getAcquireTimeoutCount() {
+        return statsSupplier.get().getAcquireTimeoutCount();
+    }
+
+    @Override
+    public long getAcquireTimeP50() {
+        return statsSupplier.get().getAcquireTimeP50();
+    }
+
+    @Override
+    public long getAcquireTimeP99() {
+        return statsSupplier.get().getAcquireTimeP99();
+    }
+}
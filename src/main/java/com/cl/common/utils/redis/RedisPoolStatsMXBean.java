@@ -0,0 +1,29 @@
+package com.cl.common.utils.redis;
+
+/**
+ * Redis连接池统计JMX接口
+ *
+ * @author: CarterCL
+ * @date: 2022/1/15 10:15
+ * @version: V1.0
+ */
+public interface RedisPoolStatsMXBean {
+
+    int getMaxTotal();
+
+    int getTotal();
+
+    int getIdle();
+
+    int getActive();
+
+    int getWaiting();
+
+    long getAcquireCount();
+
+    long getAcquireTimeoutCount();
+
+    long getAcquireTimeP50();
+
+    long getAcquireTimeP99();
+}
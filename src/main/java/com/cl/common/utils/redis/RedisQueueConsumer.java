@@ -0,0 +1,218 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.RedisUtils;
+import io.lettuce.core.ScriptOutputType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis列表可靠队列消费者，至少一次投递
+ * <p>
+ * 消息从队列原子移动到本节点的处理中列表(LMOVE/BLMOVE，需Redis 6.2+)，处理成功后从处理中列表删除，
+ * 处理失败时放回队列尾部，失败次数达到maxAttempts时移入死信列表；节点宕机时消息保留在处理中列表，使用相同processingKey重启后放回队列头部
+ * <p>
+ * 队列有消息时按批次取出，队列为空时在独占连接上阻塞等待，不轮询；同时处理的消息数达到maxInFlight时暂停取消息
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 10:00
+ * @version: V1.0
+ */
+public final class RedisQueueConsumer implements AutoCloseable {
+
+    /**
+     * 批量移动，最多ARGV[1]条，返回移动的消息
+     */
+    private static final RedisScript MOVE_BATCH_SCRIPT = RedisScript.of(
+            "local messages = {} " +
+            "for i = 1, tonumber(ARGV[1]) do " +
+            "local message = redis.call('LMOVE', KEYS[1], KEYS[2], 'LEFT', 'RIGHT') " +
+            "if not message then break end " +
+            "messages[i] = message end " +
+            "return messages");
+
+    /**
+     * 处理失败，从处理中列表放回队列尾部；ARGV[2]大于0时累加失败次数，达到后移入死信列表，返回2
+     */
+    private static final RedisScript REQUEUE_SCRIPT = RedisScript.of(
+            "if redis.call('LREM', KEYS[2], 1, ARGV[1]) == 0 then return 0 end " +
+            "local maxAttempts = tonumber(ARGV[2]) " +
+            "if maxAttempts > 0 and redis.call('HINCRBY', KEYS[3], ARGV[1], 1) >= maxAttempts then " +
+            "redis.call('HDEL', KEYS[3], ARGV[1]) " +
+            "redis.call('RPUSH', KEYS[4], ARGV[1]) return 2 end " +
+            "redis.call('RPUSH', KEYS[1], ARGV[1]) return 1");
+
+    /**
+     * 处理成功，从处理中列表删除并清除失败次数
+     */
+    private static final RedisScript ACK_SCRIPT = RedisScript.of(
+            "local count = redis.call('LREM', KEYS[2], 1, ARGV[1]) " +
+            "redis.call('HDEL', KEYS[3], ARGV[1]) " +
+            "return count");
+
+    /**
+     * 将处理中列表中的消息按原顺序放回队列头部，返回条数
+     */
+    private static final RedisScript RECOVER_SCRIPT = RedisScript.of(
+            "local count = 0 " +
+            "while redis.call('LMOVE', KEYS[2], KEYS[1], 'RIGHT', 'LEFT') do count = count + 1 end " +
+            "return count");
+
+    private static final long ERROR_BACKOFF_MILLIS = 1000L;
+
+    private static final String ATTEMPTS_SUFFIX = ":attempts";
+
+    private static final String DEAD_LETTER_SUFFIX = ":dead-letter";
+
+    private final RedisQueueSpec spec;
+
+    private final Consumer<String> handler;
+
+    /**
+     * 队列、处理中列表
+     */
+    private final String[] keys;
+
+    /**
+     * 队列、处理中列表、失败次数、死信列表
+     */
+    private final String[] requeueKeys;
+
+    private final long blockTimeoutSeconds;
+
+    private final Semaphore inFlight;
+
+    private final ExecutorService executor;
+
+    private final Thread fetcher;
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * 创建后立即恢复处理中列表并开始消费
+     *
+     * @param spec    配置
+     * @param handler 消息处理，抛出异常时消息放回队列，失败次数达到maxAttempts时移入死信列表
+     */
+    public RedisQueueConsumer(RedisQueueSpec spec, Consumer<String> handler) {
+        this.spec = spec;
+        this.handler = handler;
+        this.keys = new String[]{spec.getQueueKey(), spec.getProcessingKey()};
+        this.requeueKeys = new String[]{spec.getQueueKey(), spec.getProcessingKey(),
+                spec.getAttemptsKey() == null ? spec.getQueueKey() + ATTEMPTS_SUFFIX : spec.getAttemptsKey(),
+                spec.getDeadLetterKey() == null ? spec.getQueueKey() + DEAD_LETTER_SUFFIX : spec.getDeadLetterKey()};
+        this.blockTimeoutSeconds = Math.max(1L, spec.getBlockTimeout().getSeconds());
+        this.inFlight = new Semaphore(spec.getMaxInFlight());
+        this.executor = WorkerExecutors.newExecutor("redis-queue-worker-", spec.getConcurrency(), spec.isVirtualThreads());
+        recover();
+        this.fetcher = new Thread(this::run, "redis-queue-consumer-" + spec.getQueueKey());
+        this.fetcher.setDaemon(true);
+        this.fetcher.start();
+    }
+
+    /**
+     * 将处理中列表中未确认的消息放回队列头部
+     *
+     * @return 放回条数
+     */
+    public long recover() {
+        Long count = RedisUtils.eval(RECOVER_SCRIPT, keys, new String[0], Long.class);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * 正在处理的消息数
+     *
+     * @return 消息数
+     */
+    public int getInFlight() {
+        return spec.getMaxInFlight() - inFlight.availablePermits();
+    }
+
+    /**
+     * 停止取消息，等待已取出的消息处理完成后返回
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        try {
+            // 不中断取消息线程，避免独占连接上的BLMOVE被放弃后连接仍被占用
+            fetcher.join();
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (isRunning) {
+            int permits = 0;
+            try {
+                inFlight.acquire();
+                permits = 1;
+                while (permits < spec.getBatchSize() && inFlight.tryAcquire()) {
+                    permits++;
+                }
+                List<String> messages = moveBatch(permits);
+                if (messages.isEmpty()) {
+                    String message = RedisUtils.bLMove(blockTimeoutSeconds, spec.getQueueKey(), spec.getProcessingKey());
+                    messages = message == null ? Collections.emptyList() : Collections.singletonList(message);
+                }
+                inFlight.release(permits - messages.size());
+                permits = 0;
+                for (String message : messages) {
+                    executor.execute(() -> process(message));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                isRunning = false;
+                inFlight.release(permits);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                inFlight.release(permits);
+                sleepQuietly();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> moveBatch(int count) {
+        List<String> messages = RedisUtils.eval(MOVE_BATCH_SCRIPT, keys, new String[]{String.valueOf(count)}, List.class);
+        return messages == null ? Collections.emptyList() : messages;
+    }
+
+    private void process(String message) {
+        try {
+            handler.accept(message);
+            RedisUtils.async().eval(ACK_SCRIPT, requeueKeys, new String[]{message}, ScriptOutputType.INTEGER).whenComplete((count, ex) -> {
+                if (ex != null) {
+                    ex.printStackTrace();
+                }
+            });
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            try {
+                RedisUtils.eval(REQUEUE_SCRIPT, requeueKeys, new String[]{message, String.valueOf(spec.getMaxAttempts())}, Long.class);
+            } catch (Exception requeueEx) {
+                // 保留在处理中列表，重启后恢复
+                requeueEx.printStackTrace();
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(ERROR_BACKOFF_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            isRunning = false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.cl.common.utils.redis;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * 可靠队列消费配置
+ * <p>
+ * 集群模式下queueKey、processingKey、attemptsKey与deadLetterKey需位于同一分片，可使用hash tag，如"{order}:queue"与"{order}:processing:node1"
+ *
+ * @author: CarterCL
+ * @date: 2022/1/20 09:30
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public final class RedisQueueSpec {
+
+    /**
+     * 队列key，生产者rPush写入
+     */
+    private final String queueKey;
+
+    /**
+     * 处理中列表key，每个消费节点使用固定且唯一的key，重启后将其中未确认的消息放回队列
+     */
+    private final String processingKey;
+
+    /**
+     * 每次最多取出的消息数
+     */
+    @Builder.Default
+    private final int batchSize = 16;
+
+    /**
+     * 最多同时处理的消息数，达到后暂停取消息
+     */
+    @Builder.Default
+    private final int maxInFlight = 256;
+
+    /**
+     * 处理线程数，使用虚拟线程时不生效(并发由maxInFlight限制)
+     */
+    @Builder.Default
+    private final int concurrency = 16;
+
+    /**
+     * 可用时(JDK 21+)是否使用虚拟线程处理消息
+     */
+    @Builder.Default
+    private final boolean virtualThreads = true;
+
+    /**
+     * 队列为空时单次阻塞等待时间，最小1秒
+     */
+    @Builder.Default
+    private final Duration blockTimeout = Duration.ofSeconds(1L);
+
+    /**
+     * 最大处理次数，处理失败达到该次数的消息移入死信列表，不再放回队列；小于等于0时不限制
+     */
+    @Builder.Default
+    private final int maxAttempts = 16;
+
+    /**
+     * 失败次数哈希key(消息 -> 失败次数)，为null时为queueKey + ":attempts"；内容相同的消息共用失败次数
+     */
+    private final String attemptsKey;
+
+    /**
+     * 死信列表key，为null时为queueKey + ":dead-letter"
+     */
+    private final String deadLetterKey;
+}
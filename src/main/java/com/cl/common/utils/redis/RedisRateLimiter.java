@@ -0,0 +1,209 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.RedisUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于Redis的分布式限流，判断与扣减在一个lua脚本中原子执行，每次获取只需一次往返
+ * <p>
+ * 时间取自Redis服务端(TIME)，不受各节点时钟偏差影响；开启{@link #withLease}后每个节点从Redis批量预取许可，
+ * 本地许可用完或租期到期前的获取不访问Redis，代价是节点间分配不均时整体可能提前限流
+ *
+ * @author: CarterCL
+ * @date: 2022/1/19 09:30
+ * @version: V1.0
+ */
+public final class RedisRateLimiter {
+
+    /**
+     * 令牌桶，hash中保存剩余令牌数与上次更新时间
+     * <p>
+     * ARGV: 容量、每毫秒生成令牌数、请求数、是否允许部分获取
+     */
+    private static final RedisScript TOKEN_BUCKET_SCRIPT = RedisScript.of(
+            "local capacity = tonumber(ARGV[1]) " +
+            "local rate = tonumber(ARGV[2]) " +
+            "local requested = tonumber(ARGV[3]) " +
+            "local time = redis.call('TIME') " +
+            "local now = time[1] * 1000 + math.floor(time[2] / 1000) " +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(state[1]) " +
+            "local ts = tonumber(state[2]) " +
+            "if tokens == nil then tokens = capacity ts = now end " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate) " +
+            "local granted = 0 " +
+            "if tokens >= requested then granted = requested " +
+            "elseif ARGV[4] == '1' then granted = math.floor(tokens) end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens - granted), 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000) " +
+            "return granted");
+
+    /**
+     * 滑动窗口计数，hash中按窗口序号保存计数，已用数 = 上一窗口计数 * 未过去的比例 + 当前窗口计数
+     * <p>
+     * ARGV: 窗口内上限、窗口毫秒数、请求数、是否允许部分获取
+     */
+    private static final RedisScript SLIDING_WINDOW_SCRIPT = RedisScript.of(
+            "local limit = tonumber(ARGV[1]) " +
+            "local window = tonumber(ARGV[2]) " +
+            "local requested = tonumber(ARGV[3]) " +
+            "local time = redis.call('TIME') " +
+            "local now = time[1] * 1000 + math.floor(time[2] / 1000) " +
+            "local index = math.floor(now / window) " +
+            "local current = tonumber(redis.call('HGET', KEYS[1], tostring(index))) or 0 " +
+            "local previous = tonumber(redis.call('HGET', KEYS[1], tostring(index - 1))) or 0 " +
+            "local available = math.floor(limit - previous * (1 - (now % window) / window) - current) " +
+            "local granted = 0 " +
+            "if available >= requested then granted = requested " +
+            "elseif ARGV[4] == '1' and available > 0 then granted = available end " +
+            "if granted > 0 then redis.call('HINCRBY', KEYS[1], tostring(index), granted) end " +
+            "if redis.call('HLEN', KEYS[1]) > 2 then " +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "if tonumber(field) < index - 1 then redis.call('HDEL', KEYS[1], field) end end end " +
+            "redis.call('PEXPIRE', KEYS[1], window * 2) " +
+            "return granted");
+
+    private final RedisScript script;
+
+    private final String key;
+
+    /**
+     * 算法参数，ARGV[1]、ARGV[2]
+     */
+    private final String limit;
+
+    private final String rate;
+
+    /**
+     * 每次从Redis预取的许可数，小于等于1时不预取
+     */
+    private final int leaseSize;
+
+    private final long leaseNanos;
+
+    /**
+     * 本地剩余许可
+     */
+    private final AtomicLong leasedPermits = new AtomicLong();
+
+    private volatile long leaseDeadline;
+
+    private RedisRateLimiter(RedisScript script, String key, String limit, String rate, int leaseSize, long leaseNanos) {
+        this.script = script;
+        this.key = key;
+        this.limit = limit;
+        this.rate = rate;
+        this.leaseSize = leaseSize;
+        this.leaseNanos = leaseNanos;
+    }
+
+    /**
+     * 令牌桶限流，允许突发capacity个请求，长期速率为permitsPerSecond
+     *
+     * @param key              Redis key
+     * @param capacity         桶容量
+     * @param permitsPerSecond 每秒生成令牌数
+     * @return limiter
+     */
+    public static RedisRateLimiter tokenBucket(String key, long capacity, double permitsPerSecond) {
+        if (capacity <= 0 || permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and permitsPerSecond must be positive");
+        }
+        return new RedisRateLimiter(TOKEN_BUCKET_SCRIPT, key, String.valueOf(capacity), String.valueOf(permitsPerSecond / 1000D), 0, 0L);
+    }
+
+    /**
+     * 滑动窗口限流，任意window时长内最多limit个请求(按相邻两个固定窗口加权估算)
+     *
+     * @param key    Redis key
+     * @param limit  窗口内上限
+     * @param window 窗口时长，最小1毫秒
+     * @return limiter
+     */
+    public static RedisRateLimiter slidingWindow(String key, long limit, Duration window) {
+        if (limit <= 0 || window.toMillis() <= 0) {
+            throw new IllegalArgumentException("limit and window must be positive");
+        }
+        return new RedisRateLimiter(SLIDING_WINDOW_SCRIPT, key, String.valueOf(limit), String.valueOf(window.toMillis()), 0, 0L);
+    }
+
+    /**
+     * 开启本地预取，本地许可不足时从Redis一次获取leaseSize个(不足时获取剩余的全部)，
+     * 超过leaseTimeout未用完的许可作废，避免节点长期占用许可
+     *
+     * @param leaseSize    每次预取许可数
+     * @param leaseTimeout 预取许可有效期，应不大于令牌桶填满时间或滑动窗口时长
+     * @return 新的limiter
+     */
+    public RedisRateLimiter withLease(int leaseSize, Duration leaseTimeout) {
+        return new RedisRateLimiter(script, key, limit, rate, leaseSize, leaseTimeout.toNanos());
+    }
+
+    /**
+     * 获取1个许可
+     *
+     * @return 获取成功true
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 获取许可，不等待
+     *
+     * @param permits 许可数
+     * @return 获取成功true
+     */
+    public boolean tryAcquire(int permits) {
+        if (leaseSize <= 1) {
+            return acquireRemote(permits, false) >= permits;
+        }
+        if (tryAcquireLeased(permits)) {
+            return true;
+        }
+        synchronized (this) {
+            if (tryAcquireLeased(permits)) {
+                return true;
+            }
+            long granted = acquireRemote(Math.max(leaseSize, permits), true);
+            long now = System.nanoTime();
+            if (now - leaseDeadline >= 0) {
+                leasedPermits.set(0L);
+            }
+            leasedPermits.addAndGet(granted);
+            leaseDeadline = now + leaseNanos;
+            return tryAcquireLeased(permits);
+        }
+    }
+
+    /**
+     * 本地剩余的预取许可
+     *
+     * @return 剩余许可数
+     */
+    public long getLeasedPermits() {
+        return System.nanoTime() - leaseDeadline < 0 ? leasedPermits.get() : 0L;
+    }
+
+    private boolean tryAcquireLeased(int permits) {
+        if (System.nanoTime() - leaseDeadline >= 0) {
+            return false;
+        }
+        long available = leasedPermits.get();
+        while (available >= permits) {
+            if (leasedPermits.compareAndSet(available, available - permits)) {
+                return true;
+            }
+            available = leasedPermits.get();
+        }
+        return false;
+    }
+
+    private long acquireRemote(int permits, boolean partial) {
+        Long granted = RedisUtils.eval(script, new String[]{key},
+                new String[]{limit, rate, String.valueOf(permits), partial ? "1" : "0"}, Long.class);
+        return granted == null ? 0L : granted;
+    }
+}
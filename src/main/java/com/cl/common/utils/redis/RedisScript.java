@@ -0,0 +1,135 @@
+package com.cl.common.utils.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * lua脚本，本地计算SHA1后通过EVALSHA执行，只发送40字节的摘要
+ * <p>
+ * 服务端未缓存该脚本(重启、SCRIPT FLUSH、集群新节点)时返回NOSCRIPT，此时改用EVAL执行一次，
+ * EVAL会将脚本缓存到执行节点，之后的EVALSHA即可命中
+ * <p>
+ * 固定脚本应通过{@link #of}创建后保存为常量复用
+ *
+ * @author: CarterCL
+ * @date: 2022/1/18 15:00
+ * @version: V1.0
+ */
+@Getter
+public final class RedisScript {
+
+    /**
+     * 按脚本内容缓存的最大脚本数
+     */
+    private static final int MAX_CACHED_SCRIPTS = 256;
+
+    /**
+     * 脚本 -> RedisScript，仅供传入脚本内容的调用方使用，超出上限后淘汰
+     */
+    private static final Cache<String, RedisScript> SCRIPTS = Caffeine.newBuilder().maximumSize(MAX_CACHED_SCRIPTS).build();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 脚本内容
+     */
+    private final String source;
+
+    /**
+     * 脚本SHA1
+     */
+    private final String sha1;
+
+    private RedisScript(String source) {
+        this.source = source;
+        this.sha1 = sha1(source);
+    }
+
+    /**
+     * 创建脚本并计算SHA1，调用方应保存为常量复用
+     *
+     * @param source 脚本内容
+     * @return script
+     */
+    public static RedisScript of(String source) {
+        return new RedisScript(source);
+    }
+
+    /**
+     * 按脚本内容获取脚本，相同内容的脚本只计算一次SHA1；缓存有上限，不应拼接动态内容，参数通过keys/args传入
+     *
+     * @param source 脚本内容
+     * @return script
+     */
+    public static RedisScript cached(String source) {
+        return SCRIPTS.get(source, RedisScript::new);
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param commands   命令
+     * @param outputType 返回值类型
+     * @param keys       keys
+     * @param args       args
+     * @return 结果
+     */
+    public <T> T eval(RedisClusterCommands<String, String> commands, ScriptOutputType outputType, String[] keys, String... args) {
+        try {
+            return commands.evalsha(sha1, outputType, keys, args);
+        } catch (RedisNoScriptException ex) {
+            return commands.eval(source, outputType, keys, args);
+        }
+    }
+
+    /**
+     * 异步执行脚本，NOSCRIPT时在回调中发送EVAL并立即flush，管道中同样可用
+     *
+     * @param commands   异步命令
+     * @param outputType 返回值类型
+     * @param keys       keys
+     * @param args       args
+     * @return 结果
+     */
+    public <T> CompletableFuture<T> evalAsync(RedisClusterAsyncCommands<String, String> commands, ScriptOutputType outputType,
+                                              String[] keys, String... args) {
+        CompletableFuture<T> evalSha = commands.<T>evalsha(sha1, outputType, keys, args).toCompletableFuture();
+        return evalSha.handle((result, ex) -> {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause == null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            if (!(cause instanceof RedisNoScriptException)) {
+                return evalSha;
+            }
+            CompletableFuture<T> eval = commands.<T>eval(source, outputType, keys, args).toCompletableFuture();
+            commands.flushCommands();
+            return eval;
+        }).thenCompose(future -> future);
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.cl.common.utils.redis;
+
+import com.cl.common.utils.RedisUtils;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.models.stream.ClaimedMessages;
+import io.lettuce.core.models.stream.PendingMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis Streams消费者，至少一次投递
+ * <p>
+ * 通过XREADGROUP按批读取，批内消息并行处理(不保证顺序)，整批处理完后将成功的消息一次XACK；
+ * 处理失败或消费者宕机的消息保留在待确认列表，空闲超过claimMinIdle后由XAUTOCLAIM接管并重新处理；
+ * 启动时先从头读取本消费者待确认列表中的消息；投递次数超过maxAttempts的消息写入死信流后确认，不再处理
+ *
+ * @author: CarterCL
+ * @date: 2022/1/21 10:30
+ * @version: V1.0
+ */
+public final class RedisStreamConsumer implements AutoCloseable {
+
+    /**
+     * XAUTOCLAIM遍历结束时返回的游标
+     */
+    private static final String CLAIM_CURSOR_START = "0-0";
+
+    /**
+     * 从头读取待确认列表
+     */
+    private static final String PENDING_START = "0";
+
+    private static final String DEAD_LETTER_SUFFIX = ":dead-letter";
+
+    private static final long ERROR_BACKOFF_MILLIS = 1000L;
+
+    private final RedisStreamSpec spec;
+
+    private final Consumer<StreamMessage<String, String>> handler;
+
+    private final ExecutorService executor;
+
+    private final String deadLetterKey;
+
+    private final Thread reader;
+
+    /**
+     * 启动时读取自己待确认消息的游标，读完后为null
+     */
+    private String pendingCursor = PENDING_START;
+
+    private String claimCursor = CLAIM_CURSOR_START;
+
+    private long nextClaimNanos = System.nanoTime();
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * 创建后立即开始消费，消费组不存在时创建
+     *
+     * @param spec    配置
+     * @param handler 消息处理，抛出异常时不确认
+     */
+    public RedisStreamConsumer(RedisStreamSpec spec, Consumer<StreamMessage<String, String>> handler) {
+        this.spec = spec;
+        this.handler = handler;
+        this.deadLetterKey = spec.getDeadLetterKey() == null ? spec.getStreamKey() + DEAD_LETTER_SUFFIX : spec.getDeadLetterKey();
+        RedisUtils.xGroupCreate(spec.getStreamKey(), spec.getGroup());
+        this.executor = WorkerExecutors.newExecutor("redis-stream-worker-", spec.getConcurrency(), spec.isVirtualThreads());
+        this.reader = new Thread(this::run, "redis-stream-consumer-" + spec.getStreamKey());
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * 停止读取，等待当前批次处理并确认后返回
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        try {
+            reader.join();
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (isRunning) {
+            try {
+                if (readPending() || claim()) {
+                    continue;
+                }
+                process(RedisUtils.xReadGroup(spec.getStreamKey(), spec.getGroup(), spec.getConsumer(), spec.getBatchSize(), spec.getBlock()),
+                        false);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interruptedEx) {
+                    Thread.currentThread().interrupt();
+                    isRunning = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取自己待确认列表中的消息，读完后不再读取
+     *
+     * @return 读取到消息true
+     */
+    private boolean readPending() {
+        if (pendingCursor == null) {
+            return false;
+        }
+        List<StreamMessage<String, String>> messages = RedisUtils.xReadGroup(spec.getStreamKey(), spec.getGroup(), spec.getConsumer(),
+                pendingCursor, spec.getBatchSize(), null);
+        if (messages.isEmpty()) {
+            pendingCursor = null;
+            return false;
+        }
+        // 处理失败的消息仍在待确认列表，从本批之后继续读取
+        pendingCursor = messages.get(messages.size() - 1).getId();
+        process(messages, true);
+        return true;
+    }
+
+    /**
+     * 到达检查时间时接管空闲的待确认消息，一轮遍历完后等待claimInterval再检查
+     *
+     * @return 接管到消息true
+     */
+    private boolean claim() {
+        if (spec.getClaimMinIdle() == null || System.nanoTime() - nextClaimNanos < 0) {
+            return false;
+        }
+        ClaimedMessages<String, String> claimed = RedisUtils.xAutoClaim(spec.getStreamKey(), spec.getGroup(), spec.getConsumer(),
+                spec.getClaimMinIdle(), claimCursor, spec.getBatchSize());
+        claimCursor = claimed.getId();
+        if (CLAIM_CURSOR_START.equals(claimCursor)) {
+            nextClaimNanos = System.nanoTime() + spec.getClaimInterval().toNanos();
+        }
+        process(claimed.getMessages(), true);
+        return !claimed.getMessages().isEmpty();
+    }
+
+    /**
+     * 并行处理一批消息，全部完成后确认成功的消息
+     *
+     * @param messages    消息
+     * @param isRedeliver 是否为再次投递的消息，是时检查投递次数
+     */
+    private void process(List<StreamMessage<String, String>> messages, boolean isRedeliver) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        Map<String, Long> deliveryCounts = isRedeliver && spec.getMaxAttempts() > 0 ? deliveryCounts(messages) : Collections.emptyMap();
+        List<String> ackIds = new ArrayList<>(messages.size());
+        List<CompletableFuture<String>> futures = new ArrayList<>(messages.size());
+        for (StreamMessage<String, String> message : messages) {
+            if (message.getBody() == null) {
+                // 待确认列表中已被删除的消息，直接确认
+                ackIds.add(message.getId());
+                continue;
+            }
+            if (deliveryCounts.getOrDefault(message.getId(), 0L) > spec.getMaxAttempts()) {
+                // 先写入死信流再确认，写入失败时保留在待确认列表
+                RedisUtils.xAdd(deadLetterKey, message.getBody());
+                ackIds.add(message.getId());
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                handler.accept(message);
+                return message.getId();
+            }, executor));
+        }
+        for (CompletableFuture<String> future : futures) {
+            try {
+                ackIds.add(future.join());
+            } catch (CompletionException ex) {
+                ex.getCause().printStackTrace();
+            }
+        }
+        if (!ackIds.isEmpty()) {
+            RedisUtils.xAck(spec.getStreamKey(), spec.getGroup(), ackIds.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 查询本批消息的投递次数，待确认消息按id升序返回，范围限定为首尾消息的id区间
+     *
+     * @return 消息id -> 投递次数
+     */
+    private Map<String, Long> deliveryCounts(List<StreamMessage<String, String>> messages) {
+        List<PendingMessage> pending = RedisUtils.xPending(spec.getStreamKey(), spec.getGroup(), spec.getConsumer(),
+                messages.get(0).getId(), messages.get(messages.size() - 1).getId(), Integer.MAX_VALUE);
+        Map<String, Long> deliveryCounts = new HashMap<>(pending.size() * 2);
+        for (PendingMessage message : pending) {
+            deliveryCounts.put(message.getId(), message.getRedeliveryCount());
+        }
+        return deliveryCounts;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cl.common.utils.redis;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Redis Streams消费配置
+ *
+ * @author: CarterCL
+ * @date: 2022/1/21 10:00
+ * @version: V1.0
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public final class RedisStreamSpec {
+
+    /**
+     * 流key
+     */
+    private final String streamKey;
+
+    /**
+     * 消费组，不存在时自动创建
+     */
+    private final String group;
+
+    /**
+     * 消费者名称，同一消费组内唯一；启动时先处理该名称未确认的消息，重启后使用相同名称可继续处理
+     */
+    private final String consumer;
+
+    /**
+     * 每次最多读取条数
+     */
+    @Builder.Default
+    private final int batchSize = 64;
+
+    /**
+     * 无消息时单次阻塞等待时间，阻塞期间占用一个独占连接
+     */
+    @Builder.Default
+    private final Duration block = Duration.ofSeconds(2L);
+
+    /**
+     * 处理线程数，使用虚拟线程时不生效
+     */
+    @Builder.Default
+    private final int concurrency = 16;
+
+    /**
+     * 可用时(JDK 21+)是否使用虚拟线程处理消息
+     */
+    @Builder.Default
+    private final boolean virtualThreads = true;
+
+    /**
+     * 待确认消息空闲超过该时间后被本消费者接管(XAUTOCLAIM)，为null时不接管
+     */
+    @Builder.Default
+    private final Duration claimMinIdle = Duration.ofMinutes(1L);
+
+    /**
+     * 接管检查间隔
+     */
+    @Builder.Default
+    private final Duration claimInterval = Duration.ofSeconds(30L);
+
+    /**
+     * 最大投递次数，投递次数超过该值的消息不再处理，写入死信流后确认；小于等于0时不限制
+     */
+    @Builder.Default
+    private final int maxAttempts = 16;
+
+    /**
+     * 死信流key，为null时为streamKey + ":dead-letter"
+     */
+    private final String deadLetterKey;
+}
@@ -0,0 +1,267 @@
+package com.cl.common.utils.redis;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Redis写入合并器，单条写入先进入队列，后台线程按批次大小或等待时间合并为一次管道写入
+ * <p>
+ * 队列满时写入方阻塞；关闭时写完队列中剩余的命令，关闭后提交的命令抛出IllegalStateException
+ *
+ * @author: CarterCL
+ * @date: 2022/1/14 15:20
+ * @version: V1.0
+ */
+public final class RedisWriteBatcher implements AutoCloseable {
+
+    private static final long IDLE_POLL_MILLIS = 100L;
+
+    /**
+     * 管道执行，入参为在管道中发送命令的方法
+     */
+    private final Consumer<Consumer<RedisAsync>> pipelineExecutor;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<Command> queue;
+
+    private final Thread worker;
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * @param pipelineExecutor 管道执行，如RedisUtils::pipeline
+     * @param maxBatchSize     每批最大命令数
+     * @param maxDelay         首条命令入队后最长等待时间
+     * @param capacity         队列容量
+     */
+    public RedisWriteBatcher(Consumer<Consumer<RedisAsync>> pipelineExecutor, int maxBatchSize, Duration maxDelay, int capacity) {
+        this.pipelineExecutor = pipelineExecutor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.worker = new Thread(this::run, "redis-write-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    //region 写入
+
+    /**
+     * set
+     *
+     * @param key   key
+     * @param value value
+     * @return future
+     */
+    public CompletableFuture<Object> set(String key, String value) {
+        return submit(async -> async.set(key, value));
+    }
+
+    /**
+     * pSetEx
+     *
+     * @param key          key
+     * @param value        value
+     * @param milliseconds 过期时间(毫秒)
+     * @return future
+     */
+    public CompletableFuture<Object> pSetEx(String key, String value, Long milliseconds) {
+        return submit(async -> async.pSetEx(key, value, milliseconds));
+    }
+
+    /**
+     * hSet
+     *
+     * @param key   key
+     * @param field field
+     * @param value value
+     * @return 新增field为true
+     */
+    public CompletableFuture<Object> hSet(String key, String field, String value) {
+        return submit(async -> async.hSet(key, field, value));
+    }
+
+    /**
+     * zAdd
+     *
+     * @param key   key
+     * @param score score
+     * @param value value
+     * @return count
+     */
+    public CompletableFuture<Object> zAdd(String key, double score, String value) {
+        return submit(async -> async.zAdd(key, score, value));
+    }
+
+    /**
+     * sAdd
+     *
+     * @param key     key
+     * @param members members
+     * @return count
+     */
+    public CompletableFuture<Object> sAdd(String key, String... members) {
+        return submit(async -> async.sAdd(key, members));
+    }
+
+    /**
+     * rPush
+     *
+     * @param key    key
+     * @param values values
+     * @return length
+     */
+    public CompletableFuture<Object> rPush(String key, String... values) {
+        return submit(async -> async.rPush(key, values));
+    }
+
+    /**
+     * incr
+     *
+     * @param key    key
+     * @param amount amount
+     * @return value
+     */
+    public CompletableFuture<Object> incr(String key, Long amount) {
+        return submit(async -> async.incr(key, amount));
+    }
+
+    /**
+     * del
+     *
+     * @param keys keys
+     * @return count
+     */
+    public CompletableFuture<Object> del(String... keys) {
+        return submit(async -> async.del(keys));
+    }
+
+    /**
+     * 提交自定义命令
+     *
+     * @param command 命令，在管道中执行
+     * @return future
+     */
+    public CompletableFuture<Object> submit(Function<RedisAsync, CompletableFuture<?>> command) {
+        if (!isRunning) {
+            throw new IllegalStateException("RedisWriteBatcher is closed");
+        }
+        Command queued = new Command(command);
+        try {
+            while (!queue.offer(queued, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!isRunning) {
+                    throw new IllegalStateException("RedisWriteBatcher is closed");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            queued.result.completeExceptionally(ex);
+            return queued.result;
+        }
+        // 入队时已关闭，后台线程可能已退出，未被取走的命令不再执行
+        if (!isRunning && queue.remove(queued)) {
+            throw new IllegalStateException("RedisWriteBatcher is closed");
+        }
+        return queued.result;
+    }
+
+    //endregion
+
+    /**
+     * 停止接收命令，写完队列中剩余的命令后返回
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        try {
+            worker.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // 后台线程被中断退出时队列中可能有剩余命令
+        List<Command> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Command command : remaining) {
+            command.result.completeExceptionally(new IllegalStateException("RedisWriteBatcher is closed"));
+        }
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatchSize);
+        while (isRunning || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !isRunning) {
+                        break;
+                    }
+                    Command next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                isRunning = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Command> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            pipelineExecutor.accept(async -> {
+                for (Command command : batch) {
+                    command.send(async);
+                }
+            });
+        } catch (Exception ex) {
+            for (Command command : batch) {
+                command.result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static final class Command {
+
+        private final Function<RedisAsync, CompletableFuture<?>> command;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Command(Function<RedisAsync, CompletableFuture<?>> command) {
+            this.command = command;
+        }
+
+        private void send(RedisAsync async) {
+            command.apply(async).whenComplete((value, ex) -> {
+                if (ex == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(ex);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.cl.common.utils.redis;
+
+import io.lettuce.core.RedisFuture;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 写命令后失效客户端缓存，用于自定义codec连接等无法逐个方法处理的命令接口
+ * <p>
+ * 除已知的只读命令与连接管理方法外均视为写命令，完成后对参数中所有字符串(含数组元素与map的key)回调；
+ * 新增或遗漏的命令按写命令处理，最多多失效本地缓存，不会留下过期值；包装后的命令应按连接缓存复用
+ *
+ * @author: CarterCL
+ * @date: 2022/1/24 10:00
+ * @version: V1.0
+ */
+public final class RedisWriteInvalidation {
+
+    /**
+     * 只读命令及不访问key的方法，不回调
+     */
+    private static final Set<String> READ_METHODS = new HashSet<>(Arrays.asList(
+            // 字符串
+            "get", "mget", "strlen", "getrange", "getbit", "bitcount", "bitpos", "stralgoLcs",
+            // 哈希
+            "hget", "hmget", "hgetall", "hkeys", "hvals", "hlen", "hexists", "hstrlen", "hrandfield", "hrandfieldWithvalues", "hscan",
+            // 列表
+            "lrange", "llen", "lindex", "lpos",
+            // 集合
+            "smembers", "sismember", "smismember", "scard", "srandmember", "sinter", "sunion", "sdiff", "sscan",
+            // 有序集合
+            "zrange", "zrangeWithScores", "zrangebyscore", "zrangebyscoreWithScores", "zrangebylex", "zrevrange", "zrevrangeWithScores",
+            "zrevrangebyscore", "zrevrangebyscoreWithScores", "zrevrangebylex", "zscore", "zmscore", "zcard", "zcount", "zlexcount",
+            "zrank", "zrevrank", "zrandmember", "zrandmemberWithScores", "zscan",
+            // 流、HyperLogLog、地理位置
+            "xrange", "xrevrange", "xlen", "xread", "xpending", "xinfoStream", "xinfoGroups", "xinfoConsumers",
+            "pfcount", "geopos", "geodist", "geohash", "georadius_ro", "georadiusbymember_ro",
+            // key
+            "exists", "ttl", "pttl", "type", "dump", "keys", "scan", "randomkey", "objectEncoding", "objectIdletime", "objectRefcount",
+            // 连接与服务器
+            "ping", "echo", "info", "time", "dbsize", "clientGetname", "clientId", "clientList", "configGet", "commandInfo", "commandCount",
+            "readOnly", "readWrite", "clusterInfo", "clusterNodes", "clusterKeyslot", "clusterMyId", "clusterSlots",
+            // Lettuce连接管理
+            "getStatefulConnection", "setTimeout", "setAutoFlushCommands", "flushCommands", "isOpen", "close", "reset",
+            "toString", "hashCode", "equals"));
+
+    /**
+     * 包装命令接口，写命令完成后对其参数中的字符串回调
+     *
+     * @param type        命令接口，如RedisClusterCommands.class
+     * @param commands    命令
+     * @param invalidator key被修改时回调
+     * @return 包装后的命令
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> type, T commands, Consumer<String> invalidator) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(commands, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (args == null || !isWrite(method)) {
+                return result;
+            }
+            if (result instanceof RedisFuture) {
+                // 返回失效之后才完成的future，调用方后续的读取不会读到失效前的本地缓存
+                InvalidatedFuture<Object> invalidated = new InvalidatedFuture<>();
+                ((RedisFuture<?>) result).whenComplete((value, ex) -> {
+                    invalidate(args, invalidator);
+                    if (ex == null) {
+                        invalidated.complete(value);
+                    } else {
+                        invalidated.completeExceptionally(ex);
+                    }
+                });
+                return invalidated;
+            }
+            invalidate(args, invalidator);
+            return result;
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static boolean isWrite(Method method) {
+        return method.getDeclaringClass() != Object.class && !READ_METHODS.contains(method.getName());
+    }
+
+    private static void invalidate(Object[] args, Consumer<String> invalidator) {
+        for (Object arg : args) {
+            invalidateKeys(arg, invalidator);
+        }
+    }
+
+    private static void invalidateKeys(Object keys, Consumer<String> invalidator) {
+        if (keys instanceof String) {
+            invalidator.accept((String) keys);
+        } else if (keys instanceof Object[]) {
+            for (Object key : (Object[]) keys) {
+                invalidateKeys(key, invalidator);
+            }
+        } else if (keys instanceof Map) {
+            for (Object key : ((Map<?, ?>) keys).keySet()) {
+                invalidateKeys(key, invalidator);
+            }
+        }
+    }
+
+    /**
+     * 失效本地缓存后完成的RedisFuture
+     */
+    private static final class InvalidatedFuture<T> extends CompletableFuture<T> implements RedisFuture<T> {
+
+        @Override
+        public String getError() {
+            if (!isCompletedExceptionally()) {
+                return null;
+            }
+            try {
+                join();
+                return null;
+            } catch (CompletionException ex) {
+                return ex.getCause() == null ? null : ex.getCause().getMessage();
+            } catch (CancellationException ex) {
+                return ex.getMessage();
+            }
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                get(timeout, unit);
+                return true;
+            } catch (ExecutionException ex) {
+                return true;
+            } catch (TimeoutException ex) {
+                return false;
+            }
+        }
+    }
+
+    private RedisWriteInvalidation() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,38 @@
+package com.cl.common.utils.redis;
+
+import io.lettuce.core.ScriptOutputType;
+
+import java.util.List;
+
+/**
+ * lua脚本返回值类型转换
+ *
+ * @author: CarterCL
+ * @date: 2022/1/14 09:40
+ * @version: V1.0
+ */
+public final class ScriptOutputTypes {
+
+    /**
+     * 根据返回值类型获取ScriptOutputType
+     *
+     * @param clazz 返回值类型，支持Integer/Long、Boolean、String、List(多条返回)，状态返回请直接使用ScriptOutputType.STATUS
+     * @return ScriptOutputType
+     */
+    public static ScriptOutputType of(Class<?> clazz) {
+        if (Integer.class.equals(clazz) || Long.class.equals(clazz)) {
+            return ScriptOutputType.INTEGER;
+        } else if (Boolean.class.equals(clazz)) {
+            return ScriptOutputType.BOOLEAN;
+        } else if (String.class.equals(clazz)) {
+            return ScriptOutputType.VALUE;
+        } else if (List.class.equals(clazz)) {
+            return ScriptOutputType.MULTI;
+        }
+        throw new UnsupportedOperationException("Unsupported script output type: " + clazz);
+    }
+
+    private ScriptOutputTypes() {
+        throw new UnsupportedOperationException();
+    }
+}
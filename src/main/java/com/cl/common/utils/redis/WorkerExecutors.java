@@ -0,0 +1,43 @@
+package com.cl.common.utils.redis;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 消费者处理线程池
+ *
+ * @author: CarterCL
+ * @date: 2022/1/21 09:30
+ * @version: V1.0
+ */
+final class WorkerExecutors {
+
+    /**
+     * 创建处理线程池，JDK 21+且virtualThreads为true时使用虚拟线程，否则使用固定大小的守护线程池
+     *
+     * @param namePrefix     线程名前缀
+     * @param concurrency    线程数，使用虚拟线程时不生效
+     * @param virtualThreads 是否使用虚拟线程
+     * @return executor
+     */
+    static ExecutorService newExecutor(String namePrefix, int concurrency, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                // 不支持虚拟线程，使用平台线程
+            }
+        }
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private WorkerExecutors() {
+        throw new UnsupportedOperationException();
+    }
+}